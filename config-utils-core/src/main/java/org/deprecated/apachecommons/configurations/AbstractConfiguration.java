@@ -24,11 +24,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.ConfigurationDecoder;
@@ -44,6 +48,7 @@ import org.apache.commons.configuration2.event.BaseEventSource;
 import org.apache.commons.configuration2.event.ConfigurationErrorEvent;
 import org.apache.commons.configuration2.event.ConfigurationEvent;
 import org.apache.commons.configuration2.event.EventListener;
+import org.apache.commons.configuration2.event.EventType;
 import org.apache.commons.configuration2.ex.ConversionException;
 import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
 import org.apache.commons.configuration2.interpol.InterpolatorSpecification;
@@ -54,6 +59,7 @@ import org.apache.commons.configuration2.sync.NoOpSynchronizer;
 import org.apache.commons.configuration2.sync.Synchronizer;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.ObjectUtils;
+import org.deprecated.apachecommons.configurations.sync.OptimisticSynchronizer;
 
 /**
  * <p>Abstract configuration class. Provides basic functionality but does not
@@ -89,7 +95,9 @@ import org.apache.commons.lang3.ObjectUtils;
  * event listeners are notified. Refer to the various {@code EVENT_XXX}
  * constants to get an impression about which event types are supported.</li>
  * <li>Support for proper synchronization based on the {@link Synchronizer}
- * interface.</li>
+ * interface. This class also implements the {@code SynchronizerSupport}
+ * interface of Commons Configuration, so that a {@code FileHandler} locks it
+ * while loading or saving.</li>
  * </ul>
  * <p>
  * Most methods defined by the {@code Configuration} interface are already
@@ -105,8 +113,19 @@ import org.apache.commons.lang3.ObjectUtils;
  * @author <a href="mailto:hps@intermeta.de">Henning P. Schmiedehausen </a>
  * @version $Id: AbstractConfiguration.java 1827667 2018-03-24 19:57:23Z oheger $
  */
-public abstract class AbstractConfiguration extends BaseEventSource implements Configuration
+public abstract class AbstractConfiguration extends BaseEventSource implements Configuration,
+        org.apache.commons.configuration2.sync.SynchronizerSupport
 {
+    /**
+     * The type of the event fired by bulk updates, i.e. by
+     * {@link #setProperties(Map)} and {@link #addProperties(Map)}. A bulk update fires one event
+     * before and one after the change instead of events for the single
+     * properties. The property name of the event is <b>null</b>, its property
+     * value is an unmodifiable set with the keys of all changed properties.
+     */
+    public static final EventType<ConfigurationEvent> BULK_UPDATE =
+            new EventType<>(ConfigurationEvent.ANY, "BULK_UPDATE");
+
     /** The list delimiter handler. */
     private ListDelimiterHandler listDelimiterHandler;
 
@@ -122,9 +141,21 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     /** Stores a reference to the object that handles variable interpolation. */
     private AtomicReference<ConfigurationInterpolator> interpolator;
 
+    /** The compiled templates and cached results of interpolation. */
+    private volatile CompiledInterpolator compiledInterpolator;
+
+    /** The cached results of the typed getters. */
+    private volatile ConversionCache conversionCache;
+
     /** The object responsible for synchronization. */
     private volatile Synchronizer synchronizer;
 
+    /** The dispatcher for asynchronous event delivery. */
+    private volatile AsyncEventDispatcher eventDispatcher;
+
+    /** The counter for enabling and disabling detail events. */
+    private int detailEventsCount;
+
     /** The object used for dealing with encoded property values. */
     private ConfigurationDecoder configurationDecoder;
 
@@ -188,6 +219,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
                     "List delimiter handler must not be null!");
         }
         this.listDelimiterHandler = listDelimiterHandler;
+        invalidateCaches(null);
     }
 
     /**
@@ -329,6 +361,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
             ciNew.registerLookups(lookups);
             success = interpolator.compareAndSet(ciOld, ciNew);
         } while (!success);
+        compiledInterpolator = null;
     }
 
     /**
@@ -369,6 +402,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
             ciNew.addDefaultLookup(confLookup);
             success = interpolator.compareAndSet(ciOld, ciNew);
         } while (!success);
+        compiledInterpolator = null;
     }
 
     /**
@@ -393,6 +427,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
             ciNew.setParentInterpolator(parent);
             success = interpolator.compareAndSet(ciOld, ciNew);
         } while (!success);
+        compiledInterpolator = null;
     }
 
     /**
@@ -551,6 +586,101 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
                 });
     }
 
+    /**
+     * Returns the dispatcher used for delivering change events
+     * asynchronously.
+     *
+     * @return the {@code AsyncEventDispatcher} or <b>null</b> if events are
+     *         delivered synchronously
+     */
+    public AsyncEventDispatcher getEventDispatcher()
+    {
+        return eventDispatcher;
+    }
+
+    /**
+     * Sets a dispatcher for delivering change events asynchronously. If a
+     * dispatcher is set, the event listeners of this configuration are no
+     * longer invoked by the thread performing an update while it holds the
+     * write lock, but by the worker thread of the dispatcher. Events for the
+     * same property may then be coalesced. Error events are always delivered
+     * synchronously. Passing <b>null</b> switches back to synchronous
+     * delivery.
+     *
+     * @param eventDispatcher the dispatcher or <b>null</b>
+     */
+    public void setEventDispatcher(AsyncEventDispatcher eventDispatcher)
+    {
+        this.eventDispatcher = eventDispatcher;
+    }
+
+    /**
+     * {@inheritDoc} This implementation keeps track of the state of detail
+     * events, so that it is known when an event is dispatched asynchronously.
+     */
+    @Override
+    public void setDetailEvents(boolean enable)
+    {
+        super.setDetailEvents(enable);
+        synchronized (this)
+        {
+            detailEventsCount += enable ? 1 : -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc} If an {@link AsyncEventDispatcher} is set, this
+     * implementation passes the event to it rather than notifying the
+     * listeners directly. Whether detail events are enabled is checked now,
+     * because this may change until the event is delivered.
+     */
+    @Override
+    protected <T extends ConfigurationEvent> void fireEvent(EventType<T> type,
+            String propName, Object propValue, boolean before)
+    {
+        AsyncEventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher == null)
+        {
+            super.fireEvent(type, propName, propValue, before);
+            return;
+        }
+
+        synchronized (this)
+        {
+            if (detailEventsCount < 0)
+            {
+                return;
+            }
+        }
+        dispatcher.dispatch(this, type, propName, propValue, before);
+    }
+
+    /**
+     * Notifies the registered listeners about an event. This method is called
+     * by an {@link AsyncEventDispatcher}.
+     *
+     * @param <T> the type of the event
+     * @param type the event type
+     * @param propName the name of the affected property
+     * @param propValue the value of the event
+     * @param before the flag whether the event is fired before the change
+     */
+    <T extends ConfigurationEvent> void deliverEvent(EventType<T> type,
+            String propName, Object propValue, boolean before)
+    {
+        Collection<EventListener<? super T>> listeners =
+                getEventListeners(type);
+        if (!listeners.isEmpty())
+        {
+            @SuppressWarnings("unchecked")
+            T event = (T) createEvent(type, propName, propValue, before);
+            for (EventListener<? super T> listener : listeners)
+            {
+                listener.onEvent(event);
+            }
+        }
+    }
+
     /**
      * Returns the object responsible for synchronizing this configuration. All
      * access to this configuration - both read and write access - is controlled
@@ -705,6 +835,84 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         getSynchronizer().endWrite();
     }
 
+    /**
+     * Returns a flag whether the read operations of this configuration can be
+     * executed optimistically, i.e. without a lock, if the current
+     * {@code Synchronizer} is an {@link OptimisticSynchronizer}. This is the
+     * case if {@code getPropertyInternal()}, {@code containsKeyInternal()} and
+     * {@code sizeInternal()} are free of side effects and always terminate even
+     * if the configuration is modified concurrently (their result may be
+     * wrong, it is discarded in this case). Note that an optimistic read does
+     * not call {@code beginRead()}, so subclasses which perform additional
+     * actions there must not enable it. This base implementation returns
+     * <b>false</b>.
+     *
+     * @return a flag whether optimistic reads are supported
+     */
+    protected boolean isOptimisticReadSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Returns a flag whether the read operations of this configuration can be
+     * executed without involving the {@code Synchronizer} at all. This is the
+     * case if the data read by {@code getPropertyInternal()},
+     * {@code containsKeyInternal()}, {@code sizeInternal()},
+     * {@code isEmptyInternal()} and {@code getKeysInternal()} is never
+     * modified, but replaced as a whole by write operations (copy-on-write).
+     * Write operations still use the {@code Synchronizer}. This base
+     * implementation returns <b>false</b>.
+     *
+     * @return a flag whether reads can be performed without a lock
+     * @see CopyOnWriteMapConfiguration
+     */
+    protected boolean isLockFreeReadSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Returns a flag whether the results of the typed getters like
+     * {@code getInt()} or {@code getString()} can be cached. A cached result
+     * is reused as long as {@code getProperty()} returns the identical raw
+     * value for the key, so this is only worthwhile if a derived class returns
+     * the same object for an unchanged property rather than creating a new
+     * one on each call. This base implementation returns <b>false</b>.
+     *
+     * @return a flag whether conversion results can be cached
+     * @see MapConfiguration
+     */
+    protected boolean isConversionCacheSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Executes the given read operation. If this configuration supports lock
+     * free reads, the operation is executed directly. Otherwise, if supported,
+     * the operation is first executed optimistically; if a concurrent write
+     * invalidates this attempt, or if no optimistic read is possible, the
+     * operation is executed between {@code beginRead()} and
+     * {@code endRead()}.
+     *
+     * @param reader the read operation
+     * @param <T> the type of the result
+     * @return the result of the read operation
+     * @see OptimisticSynchronizer#read(Object, Supplier, Runnable, Runnable)
+     */
+    private <T> T optimisticRead(Supplier<? extends T> reader)
+    {
+        if (isLockFreeReadSupported())
+        {
+            return reader.get();
+        }
+
+        Object sync = isOptimisticReadSupported() ? getSynchronizer() : null;
+        return OptimisticSynchronizer.read(sync, reader,
+                () -> beginRead(false), this::endRead);
+    }
+
     @Override
     public final void addProperty(String key, Object value)
     {
@@ -713,6 +921,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         {
             fireEvent(ConfigurationEvent.ADD_PROPERTY, key, value, true);
             addPropertyInternal(key, value);
+            invalidateCaches(key);
             fireEvent(ConfigurationEvent.ADD_PROPERTY, key, value, false);
         }
         finally
@@ -762,10 +971,14 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     }
 
     /**
-     * Returns the interpolated value. This implementation delegates to the
-     * current {@code ConfigurationInterpolator}. If no
+     * Returns the interpolated value. This implementation uses compiled
+     * templates on top of the current {@code ConfigurationInterpolator}; the
+     * results are cached until a property they depend on is changed. If no
      * {@code ConfigurationInterpolator} is set, the passed in value is returned
-     * without changes.
+     * without changes. Note that changes on the lookups of the
+     * {@code ConfigurationInterpolator} only take effect for the cached
+     * results if they are made through this configuration, e.g. with
+     * {@link #setPrefixLookups(Map)} or {@link #setInterpolator(ConfigurationInterpolator)}.
      *
      * @param value the value to interpolate
      * @return the value with variables substituted
@@ -773,7 +986,122 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     protected Object interpolate(Object value)
     {
         ConfigurationInterpolator ci = getInterpolator();
-        return (ci != null) ? ci.interpolate(value) : value;
+        return (ci != null) ? fetchCompiledInterpolator(ci).interpolate(value)
+                : value;
+    }
+
+    /**
+     * Returns the {@code CompiledInterpolator} for the given
+     * {@code ConfigurationInterpolator}, creating it if necessary.
+     *
+     * @param ci the current {@code ConfigurationInterpolator}
+     * @return the {@code CompiledInterpolator}
+     */
+    private CompiledInterpolator fetchCompiledInterpolator(
+            ConfigurationInterpolator ci)
+    {
+        CompiledInterpolator compiled = compiledInterpolator;
+        if (compiled == null || !compiled.isFor(this, ci))
+        {
+            compiled = new CompiledInterpolator(this, ci);
+            compiledInterpolator = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Drops the cached interpolation and conversion results depending on the
+     * given key or all cached results if the key is <b>null</b>. This method
+     * is called after each update of this configuration. Subclasses which
+     * change the content of this configuration without using the methods of
+     * this class have to call it, too.
+     *
+     * @param key the key which has been changed or <b>null</b>
+     */
+    protected void invalidateCaches(String key)
+    {
+        CompiledInterpolator compiled = compiledInterpolator;
+        if (compiled != null)
+        {
+            if (key == null)
+            {
+                compiled.invalidateAll();
+            }
+            else
+            {
+                compiled.invalidate(key);
+            }
+        }
+
+        ConversionCache conversions = conversionCache;
+        if (conversions != null)
+        {
+            if (key == null)
+            {
+                conversions.invalidateAll();
+            }
+            else
+            {
+                conversions.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the cache for the results of the typed getters. The cache is
+     * created on demand and replaced if the conversion handler has changed.
+     * Result is <b>null</b> if this configuration does not support caching.
+     *
+     * @return the {@code ConversionCache} or <b>null</b>
+     */
+    private ConversionCache fetchConversionCache()
+    {
+        if (!isConversionCacheSupported())
+        {
+            return null;
+        }
+
+        ConversionHandler handler = getConversionHandler();
+        ConversionCache cache = conversionCache;
+        if (cache == null || !cache.isFor(this, handler))
+        {
+            cache = new ConversionCache(this, handler);
+            conversionCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the result of converting the value of the given property to the
+     * given class using the conversion cache. This is the fast path of the
+     * typed getters: the raw value is read once; if there is no cached result
+     * for it, it is converted directly, and the result is stored in the cache.
+     * If this method yields <b>null</b> (because the cache is not used or the
+     * property has no value), the typed getter has to fall back to
+     * {@link #convert(Class, String, Object, boolean)}, which handles default
+     * values and missing properties.
+     *
+     * @param <T> the target type of the conversion
+     * @param cls the target class
+     * @param key the key of the desired property
+     * @return the converted value or <b>null</b>
+     */
+    private <T> T cachedConversion(Class<T> cls, String key)
+    {
+        ConversionCache cache = conversionCache;
+        if (cache == null || !isConversionCacheSupported()
+                || !cache.isFor(this, getConversionHandler()))
+        {
+            return null;
+        }
+
+        Object value = getProperty(key);
+        T cached = cache.get(key, value, cls);
+        if (cached != null || value == null)
+        {
+            return cached;
+        }
+        return convertValue(cls, key, value, null);
     }
 
     @Override
@@ -796,6 +1124,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         {
             fireEvent(ConfigurationEvent.SET_PROPERTY, key, value, true);
             setPropertyInternal(key, value);
+            invalidateCaches(key);
             fireEvent(ConfigurationEvent.SET_PROPERTY, key, value, false);
         }
         finally
@@ -829,6 +1158,114 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         }
     }
 
+    /**
+     * Sets the values of multiple properties in a single update. This is
+     * equivalent to calling {@code setProperty()} for each entry of the map,
+     * but the write lock is obtained only once, and instead of the events for
+     * the single properties a {@link #BULK_UPDATE} event is fired. The values
+     * are subject to list splitting as with {@code setProperty()}.
+     *
+     * @param properties the new property values by key (can be <b>null</b>,
+     *        then this operation has no effect)
+     */
+    public final void setProperties(Map<String, ?> properties)
+    {
+        updateProperties(properties, false);
+    }
+
+    /**
+     * Adds the values of multiple properties in a single update. This is
+     * equivalent to calling {@code addProperty()} for each entry of the map,
+     * but the write lock is obtained only once, and instead of the events for
+     * the single properties a {@link #BULK_UPDATE} event is fired.
+     *
+     * @param properties the property values to be added by key (can be
+     *        <b>null</b>, then this operation has no effect)
+     */
+    public final void addProperties(Map<String, ?> properties)
+    {
+        updateProperties(properties, true);
+    }
+
+    /**
+     * Performs a bulk update.
+     *
+     * @param properties the property values by key
+     * @param add <b>true</b> for adding, <b>false</b> for setting the values
+     */
+    private void updateProperties(Map<String, ?> properties, boolean add)
+    {
+        if (properties == null || properties.isEmpty())
+        {
+            return;
+        }
+
+        beginWrite(false);
+        try
+        {
+            Set<String> keys = Collections.unmodifiableSet(
+                    new LinkedHashSet<>(properties.keySet()));
+            fireEvent(BULK_UPDATE, null, keys, true);
+            setDetailEvents(false);
+            try
+            {
+                if (add)
+                {
+                    addPropertiesInternal(properties);
+                }
+                else
+                {
+                    setPropertiesInternal(properties);
+                }
+            }
+            finally
+            {
+                setDetailEvents(true);
+            }
+            invalidateCaches(null);
+            fireEvent(BULK_UPDATE, null, keys, false);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    /**
+     * Actually adds the values of multiple properties. This method is called
+     * by {@link #addProperties(Map)} with the write lock held and detail
+     * events disabled. This base implementation calls
+     * {@code addPropertyInternal()} for each property. Subclasses should
+     * override this method if they can provide a more efficient algorithm.
+     *
+     * @param properties the property values to be added by key
+     */
+    protected void addPropertiesInternal(Map<String, ?> properties)
+    {
+        for (Map.Entry<String, ?> e : properties.entrySet())
+        {
+            addPropertyInternal(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Actually sets the values of multiple properties. This method is called
+     * by {@link #setProperties(Map)} with the write lock held and detail
+     * events disabled.
+     * This base implementation calls {@code setPropertyInternal()} for each
+     * property. Subclasses should override this method if they can provide a
+     * more efficient algorithm.
+     *
+     * @param properties the new property values by key
+     */
+    protected void setPropertiesInternal(Map<String, ?> properties)
+    {
+        for (Map.Entry<String, ?> e : properties.entrySet())
+        {
+            setPropertyInternal(e.getKey(), e.getValue());
+        }
+    }
+
     /**
      * Removes the specified property from this configuration. This
      * implementation performs some preparations and then delegates to
@@ -844,6 +1281,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         {
             fireEvent(ConfigurationEvent.CLEAR_PROPERTY, key, null, true);
             clearPropertyDirect(key);
+            invalidateCaches(key);
             fireEvent(ConfigurationEvent.CLEAR_PROPERTY, key, null, false);
         }
         finally
@@ -869,6 +1307,7 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         {
             fireEvent(ConfigurationEvent.CLEAR, null, null, true);
             clearInternal();
+            invalidateCaches(null);
             fireEvent(ConfigurationEvent.CLEAR, null, null, false);
         }
         finally
@@ -935,6 +1374,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final Iterator<String> getKeys()
     {
+        if (isLockFreeReadSupported())
+        {
+            return getKeysInternal();
+        }
+
         beginRead(false);
         try
         {
@@ -971,11 +1415,49 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     /**
      * {@inheritDoc} This implementation ensures proper synchronization.
      * Subclasses have to define the abstract {@code getPropertyInternal()}
-     * method which is called from here.
+     * method which is called from here. The read is performed optimistically
+     * if supported. As this method is on the path of all typed getters, the
+     * optimistic read is done here directly rather than by
+     * {@link OptimisticSynchronizer#read(Object, Supplier, Runnable, Runnable)},
+     * so that no objects are allocated.
+     *
+     * @see #isOptimisticReadSupported()
      */
     @Override
     public final Object getProperty(String key)
     {
+        if (isLockFreeReadSupported())
+        {
+            return getPropertyInternal(key);
+        }
+
+        Synchronizer sync = getSynchronizer();
+        if (isOptimisticReadSupported()
+                && sync instanceof OptimisticSynchronizer)
+        {
+            OptimisticSynchronizer optimisticSync = (OptimisticSynchronizer) sync;
+            long stamp = optimisticSync.tryOptimisticRead();
+            if (stamp != 0)
+            {
+                try
+                {
+                    Object value = getPropertyInternal(key);
+                    if (optimisticSync.validate(stamp))
+                    {
+                        return value;
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    if (optimisticSync.validate(stamp))
+                    {
+                        throw e;
+                    }
+                    // caused by a concurrent write, retry under the lock
+                }
+            }
+        }
+
         beginRead(false);
         try
         {
@@ -1005,6 +1487,11 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public final boolean isEmpty()
     {
+        if (isLockFreeReadSupported())
+        {
+            return isEmptyInternal();
+        }
+
         beginRead(false);
         try
         {
@@ -1028,20 +1515,13 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
 
     /**
      * {@inheritDoc} This implementation handles synchronization and delegates
-     * to {@code sizeInternal()}.
+     * to {@code sizeInternal()}. The read is performed optimistically if
+     * supported.
      */
     @Override
     public final int size()
     {
-        beginRead(false);
-        try
-        {
-            return sizeInternal();
-        }
-        finally
-        {
-            endRead();
-        }
+        return optimisticRead(this::sizeInternal);
     }
 
     /**
@@ -1065,20 +1545,13 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
 
     /**
      * {@inheritDoc} This implementation handles synchronization and delegates
-     * to {@code containsKeyInternal()}.
+     * to {@code containsKeyInternal()}. The read is performed optimistically
+     * if supported.
      */
     @Override
     public final boolean containsKey(String key)
     {
-        beginRead(false);
-        try
-        {
-            return containsKeyInternal(key);
-        }
-        finally
-        {
-            endRead();
-        }
+        return optimisticRead(() -> containsKeyInternal(key));
     }
 
     /**
@@ -1151,6 +1624,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public boolean getBoolean(String key)
     {
+        Boolean cached = cachedConversion(Boolean.class, key);
+        if (cached != null)
+        {
+            return cached.booleanValue();
+        }
+
         Boolean b = convert(Boolean.class, key, null, true);
         return checkNonNullValue(key, b).booleanValue();
     }
@@ -1158,6 +1637,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public boolean getBoolean(String key, boolean defaultValue)
     {
+        Boolean cached = cachedConversion(Boolean.class, key);
+        if (cached != null)
+        {
+            return cached.booleanValue();
+        }
+
         return getBoolean(key, Boolean.valueOf(defaultValue)).booleanValue();
     }
 
@@ -1200,6 +1685,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public double getDouble(String key)
     {
+        Double cached = cachedConversion(Double.class, key);
+        if (cached != null)
+        {
+            return cached.doubleValue();
+        }
+
         Double d = convert(Double.class, key, null, true);
         return checkNonNullValue(key, d).doubleValue();
     }
@@ -1207,6 +1698,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public double getDouble(String key, double defaultValue)
     {
+        Double cached = cachedConversion(Double.class, key);
+        if (cached != null)
+        {
+            return cached.doubleValue();
+        }
+
         return getDouble(key, Double.valueOf(defaultValue)).doubleValue();
     }
 
@@ -1238,6 +1735,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public int getInt(String key)
     {
+        Integer cached = cachedConversion(Integer.class, key);
+        if (cached != null)
+        {
+            return cached.intValue();
+        }
+
         Integer i = convert(Integer.class, key, null, true);
         return checkNonNullValue(key, i).intValue();
     }
@@ -1245,6 +1748,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public int getInt(String key, int defaultValue)
     {
+        Integer cached = cachedConversion(Integer.class, key);
+        if (cached != null)
+        {
+            return cached.intValue();
+        }
+
         return getInteger(key, Integer.valueOf(defaultValue)).intValue();
     }
 
@@ -1257,6 +1766,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public long getLong(String key)
     {
+        Long cached = cachedConversion(Long.class, key);
+        if (cached != null)
+        {
+            return cached.longValue();
+        }
+
         Long l = convert(Long.class, key, null, true);
         return checkNonNullValue(key, l).longValue();
     }
@@ -1264,6 +1779,12 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public long getLong(String key, long defaultValue)
     {
+        Long cached = cachedConversion(Long.class, key);
+        if (cached != null)
+        {
+            return cached.longValue();
+        }
+
         return getLong(key, Long.valueOf(defaultValue)).longValue();
     }
 
@@ -1331,12 +1852,24 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     @Override
     public String getString(String key)
     {
+        String cached = cachedConversion(String.class, key);
+        if (cached != null)
+        {
+            return cached;
+        }
+
         return convert(String.class, key, null, true);
     }
 
     @Override
     public String getString(String key, String defaultValue)
     {
+        String cached = cachedConversion(String.class, key);
+        if (cached != null)
+        {
+            return cached;
+        }
+
         String result = convert(String.class, key, null, false);
         return (result != null) ? result : interpolate(defaultValue);
     }
@@ -1576,7 +2109,8 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      * about the properties' structure (i.e. the parent-child-relationships will
      * get lost). So when dealing with hierarchical configuration objects their
      * {@link BaseHierarchicalConfiguration#clone() clone()} methods
-     * should be used.
+     * should be used. The properties are set in a single update, see
+     * {@link #setProperties(Map)}.
      *
      * @param c the configuration to copy (can be <b>null</b>, then this
      * operation will have no effect)
@@ -1586,20 +2120,22 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     {
         if (c != null)
         {
+            Map<String, Object> values;
             c.lock(LockMode.READ);
             try
             {
+                values = new LinkedHashMap<>(Utils.mapCapacity(c.size()));
                 for (Iterator<String> it = c.getKeys(); it.hasNext();)
                 {
                     String key = it.next();
-                    Object value = encodeForCopy(c.getProperty(key));
-                    setProperty(key, value);
+                    values.put(key, encodeForCopy(c.getProperty(key)));
                 }
             }
             finally
             {
                 c.unlock(LockMode.READ);
             }
+            setProperties(values);
         }
     }
 
@@ -1614,7 +2150,8 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      * parent-child-relationships will get lost). So when dealing with
      * hierarchical configuration objects their
      * {@link BaseHierarchicalConfiguration#clone() clone()} methods
-     * should be used.
+     * should be used. The properties are added in a single update, see
+     * {@link #addProperties(Map)}.
      *
      * @param c the configuration to be appended (can be <b>null</b>, then this
      * operation will have no effect)
@@ -1624,21 +2161,68 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
     {
         if (c != null)
         {
+            Map<String, Object> values;
             c.lock(LockMode.READ);
             try
             {
+                values = new LinkedHashMap<>(Utils.mapCapacity(c.size()));
                 for (Iterator<String> it = c.getKeys(); it.hasNext();)
                 {
                     String key = it.next();
-                    Object value = encodeForCopy(c.getProperty(key));
-                    addProperty(key, value);
+                    values.put(key, encodeForCopy(c.getProperty(key)));
                 }
             }
             finally
             {
                 c.unlock(LockMode.READ);
             }
+            addProperties(values);
+        }
+    }
+
+    /**
+     * Returns an unmodifiable snapshot of this configuration which is
+     * optimized for reading. All variables are resolved, and the values are
+     * converted to the most common data types in advance. Reads on the
+     * snapshot do not require any locks. This is useful for configurations
+     * which do not change after they have been loaded. See
+     * {@link FrozenConfiguration} for details.
+     *
+     * @return the frozen configuration
+     * @throws IllegalStateException if the values contain a cycle of variables
+     */
+    public ImmutableConfiguration freeze()
+    {
+        Map<String, Object> values;
+        lock(LockMode.READ);
+        try
+        {
+            values = new LinkedHashMap<>(Utils.mapCapacity(size()));
+            for (Iterator<String> it = getKeys(); it.hasNext();)
+            {
+                String key = it.next();
+                Object value = getProperty(key);
+                if (value instanceof Collection)
+                {
+                    List<Object> list = new ArrayList<>(((Collection<?>) value).size());
+                    for (Object elem : (Collection<?>) value)
+                    {
+                        list.add(interpolate(elem));
+                    }
+                    value = Collections.unmodifiableList(list);
+                }
+                else
+                {
+                    value = interpolate(value);
+                }
+                values.put(key, value);
+            }
         }
+        finally
+        {
+            unlock(LockMode.READ);
+        }
+        return new FrozenConfiguration(values, this);
     }
 
     /**
@@ -1649,7 +2233,9 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      * far as possible (if a variable cannot be resolved, it remains unchanged).
      * This operation is useful if the content of a configuration is to be
      * exported or processed by an external component that does not support
-     * variable interpolation.
+     * variable interpolation. The values are resolved on the calling thread
+     * under a single read lock; they are set on the new configuration with
+     * {@link #setProperties(Map)}.
      *
      * @return a configuration with all variables interpolated
      * @throws org.apache.commons.configuration2.ex.ConfigurationRuntimeException if this
@@ -1662,14 +2248,26 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
         AbstractConfiguration c = (AbstractConfiguration) ConfigurationUtils
                 .cloneConfiguration(this);
 
-        // now perform interpolation
-        c.setListDelimiterHandler(new DisabledListDelimiterHandler());
-        for (Iterator<String> it = getKeys(); it.hasNext();)
+        // now perform interpolation; nested reads of this thread do not
+        // block, so resolving the values cannot deadlock with a waiting writer
+        Map<String, Object> interpolated;
+        lock(LockMode.READ);
+        try
+        {
+            interpolated = new LinkedHashMap<>(Utils.mapCapacity(size()));
+            for (Iterator<String> it = getKeys(); it.hasNext();)
+            {
+                String key = it.next();
+                interpolated.put(key, getList(key));
+            }
+        }
+        finally
         {
-            String key = it.next();
-            c.setProperty(key, getList(key));
+            unlock(LockMode.READ);
         }
 
+        c.setListDelimiterHandler(new DisabledListDelimiterHandler());
+        c.setProperties(interpolated);
         c.setListDelimiterHandler(getListDelimiterHandler());
         return c;
     }
@@ -1736,12 +2334,34 @@ public abstract class AbstractConfiguration extends BaseEventSource implements C
      */
     private <T> T getAndConvertProperty(Class<T> cls, String key, T defaultValue)
     {
-        Object value = getProperty(key);
+        return convertValue(cls, key, getProperty(key), defaultValue);
+    }
+
+    /**
+     * Converts the given value of a property to the given class and stores
+     * the result in the conversion cache if it is supported.
+     *
+     * @param <T> the target type of the conversion
+     * @param cls the target class
+     * @param key the key of the property
+     * @param value the raw value of the property
+     * @param defaultValue the default value if the conversion yields
+     *        <b>null</b>
+     * @return the converted value
+     * @throws ConversionException if the value cannot be converted
+     */
+    private <T> T convertValue(Class<T> cls, String key, Object value,
+            T defaultValue)
+    {
         try
         {
-            return ObjectUtils.defaultIfNull(
-                    getConversionHandler().to(value, cls, getInterpolator()),
-                    defaultValue);
+            ConversionCache cache = fetchConversionCache();
+            T converted = getConversionHandler().to(value, cls, getInterpolator());
+            if (cache != null)
+            {
+                cache.put(key, value, cls, converted);
+            }
+            return ObjectUtils.defaultIfNull(converted, defaultValue);
         }
         catch (ConversionException cex)
         {
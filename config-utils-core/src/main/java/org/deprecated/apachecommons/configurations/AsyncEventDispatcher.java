@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventType;
+
+/**
+ * <p>
+ * An object which delivers the change events of configurations on a
+ * background thread.
+ * </p>
+ * <p>
+ * Per default, an {@link AbstractConfiguration} notifies its event listeners
+ * on the thread performing the update, while the write lock is held. So slow
+ * listeners delay all readers. If a dispatcher is set using
+ * {@link AbstractConfiguration#setEventDispatcher(AsyncEventDispatcher)}, the
+ * writer only places the event in a bounded ring buffer, and the listeners
+ * are invoked by the single worker thread of the dispatcher. Events are
+ * delivered in the order they have been fired.
+ * </p>
+ * <p>
+ * Events for the same property are coalesced while they are pending: if a
+ * property is changed again before the listeners have been notified about the
+ * previous change of the same kind, the pending event is updated with the new
+ * value instead of adding another one. So listeners may not see every
+ * intermediate value, but always the latest one. Events without a property
+ * name (e.g. for {@code clear()}) are never coalesced and act as a barrier for
+ * coalescing.
+ * </p>
+ * <p>
+ * If the buffer is full, the {@link BackPressure} policy passed to the
+ * constructor decides what happens. Note that with
+ * {@link BackPressure#BLOCK} the writer waits while holding the write lock of
+ * the configuration; listeners must then not access the configuration, or the
+ * buffer must be large enough for bursts of updates.
+ * </p>
+ * <p>
+ * Exceptions thrown by listeners are passed to the uncaught exception handler
+ * of the worker thread; delivery continues with the next event. An
+ * {@code Error} terminates the worker thread; the remaining events are
+ * delivered by a new one. A single
+ * dispatcher can be shared by multiple configurations. After
+ * {@link #close()}, events are delivered synchronously again.
+ * </p>
+ */
+public final class AsyncEventDispatcher implements AutoCloseable
+{
+    /**
+     * The policies for the case that an event is fired while the buffer is
+     * full.
+     */
+    public enum BackPressure
+    {
+        /** The writer waits until there is space in the buffer. */
+        BLOCK,
+
+        /** The new event is discarded. */
+        DROP_NEWEST,
+
+        /** The oldest pending event is discarded. */
+        DROP_OLDEST
+    }
+
+    /** The name of the worker thread created by the default factory. */
+    private static final String THREAD_NAME = "configuration-event-dispatcher";
+
+    /** The lock protecting the buffer. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The condition signaled when an event has been added. */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** The condition signaled when an event has been removed. */
+    private final Condition notFull = lock.newCondition();
+
+    /** The condition signaled when all events have been delivered. */
+    private final Condition idle = lock.newCondition();
+
+    /** The ring buffer of pending events. */
+    private final PendingEvent[] ring;
+
+    /** The pending events by source and key for coalescing. */
+    private final Map<PendingKey, KeyState> pendingByKey = new HashMap<>();
+
+    /** The policy if the buffer is full. */
+    private final BackPressure backPressure;
+
+    /** The factory for the worker thread. */
+    private final ThreadFactory threadFactory;
+
+    /** The index of the oldest pending event. */
+    private int head;
+
+    /** The number of pending events. */
+    private int count;
+
+    /** A flag whether the worker is currently delivering an event. */
+    private boolean delivering;
+
+    /** The number of events which have been dropped. */
+    private long dropped;
+
+    /** A flag whether this dispatcher has been closed. */
+    private boolean closed;
+
+    /** The worker thread; created on demand. */
+    private Thread worker;
+
+    /**
+     * Creates a new instance of {@code AsyncEventDispatcher} with a daemon
+     * worker thread.
+     *
+     * @param capacity the maximum number of pending events
+     * @param backPressure the policy if the buffer is full
+     * @throws IllegalArgumentException if the capacity is not positive or the
+     *         policy is <b>null</b>
+     */
+    public AsyncEventDispatcher(int capacity, BackPressure backPressure)
+    {
+        this(capacity, backPressure, r -> {
+            Thread t = new Thread(r, THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates a new instance of {@code AsyncEventDispatcher} which uses the
+     * given factory to create its worker thread.
+     *
+     * @param capacity the maximum number of pending events
+     * @param backPressure the policy if the buffer is full
+     * @param threadFactory the factory for the worker thread
+     * @throws IllegalArgumentException if the capacity is not positive or an
+     *         argument is <b>null</b>
+     */
+    public AsyncEventDispatcher(int capacity, BackPressure backPressure,
+            ThreadFactory threadFactory)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "Capacity must be positive: " + capacity);
+        }
+        if (backPressure == null || threadFactory == null)
+        {
+            throw new IllegalArgumentException(
+                    "BackPressure and ThreadFactory must not be null!");
+        }
+        ring = new PendingEvent[capacity];
+        this.backPressure = backPressure;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Returns the policy used if the buffer is full.
+     *
+     * @return the {@code BackPressure} policy
+     */
+    public BackPressure getBackPressure()
+    {
+        return backPressure;
+    }
+
+    /**
+     * Returns the maximum number of pending events.
+     *
+     * @return the capacity of the buffer
+     */
+    public int getCapacity()
+    {
+        return ring.length;
+    }
+
+    /**
+     * Returns the number of events which have been fired, but not yet
+     * delivered.
+     *
+     * @return the number of pending events
+     */
+    public int getPendingCount()
+    {
+        lock.lock();
+        try
+        {
+            return count;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of events which have been discarded because the
+     * buffer was full. Coalesced events are not counted.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount()
+    {
+        lock.lock();
+        try
+        {
+            return dropped;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all pending events have been delivered. This method must
+     * not be called by an event listener.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return <b>true</b> if all events have been delivered, <b>false</b> if
+     *         the timeout has elapsed
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit)
+            throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try
+        {
+            while (count > 0 || delivering)
+            {
+                if (nanos <= 0)
+                {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes this dispatcher. The events which are already pending are still
+     * delivered by the worker thread, which terminates afterwards. Events
+     * fired later are delivered on the thread firing them.
+     */
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an event to the buffer or coalesces it with a pending event for
+     * the same property. This method is called by
+     * {@link AbstractConfiguration} instead of notifying its listeners.
+     *
+     * @param source the configuration which fired the event
+     * @param type the event type
+     * @param key the name of the affected property or <b>null</b>
+     * @param value the value of the event
+     * @param before the flag whether the event is fired before the change
+     */
+    void dispatch(AbstractConfiguration source,
+            EventType<? extends ConfigurationEvent> type, String key,
+            Object value, boolean before)
+    {
+        PendingKey pendingKey = (key != null) ? new PendingKey(source, key)
+                : null;
+        lock.lock();
+        try
+        {
+            while (!closed)
+            {
+                if (pendingKey != null
+                        && coalesce(pendingKey, type, value, before))
+                {
+                    return;
+                }
+
+                if (count == ring.length)
+                {
+                    if (backPressure == BackPressure.DROP_NEWEST)
+                    {
+                        dropped++;
+                        return;
+                    }
+                    if (backPressure == BackPressure.BLOCK)
+                    {
+                        notFull.awaitUninterruptibly();
+                        continue;
+                    }
+                    take().done = true;
+                    dropped++;
+                }
+
+                PendingEvent event = new PendingEvent(source, type, key,
+                        value, before, pendingKey);
+                ring[(head + count) % ring.length] = event;
+                count++;
+                register(event);
+                startWorker();
+                notEmpty.signal();
+                return;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        source.deliverEvent(type, key, value, before);
+    }
+
+    /**
+     * Tries to merge an event into a pending event for the same property. The
+     * lock must be held.
+     *
+     * @param pendingKey the key of the property
+     * @param type the event type
+     * @param value the value of the event
+     * @param before the flag whether the event is fired before the change
+     * @return a flag whether the event has been coalesced
+     */
+    private boolean coalesce(PendingKey pendingKey,
+            EventType<? extends ConfigurationEvent> type, Object value,
+            boolean before)
+    {
+        KeyState state = pendingByKey.get(pendingKey);
+        if (state == null || state.type != type)
+        {
+            return false;
+        }
+
+        PendingEvent pending = before ? state.before : state.after;
+        if (pending == null || pending.done)
+        {
+            return false;
+        }
+        pending.value = value;
+        return true;
+    }
+
+    /**
+     * Records a newly added event for coalescing. An event without a key
+     * prevents coalescing with all events added before. The lock must be
+     * held.
+     *
+     * @param event the event
+     */
+    private void register(PendingEvent event)
+    {
+        if (event.pendingKey == null)
+        {
+            pendingByKey.clear();
+            return;
+        }
+
+        KeyState state = pendingByKey.get(event.pendingKey);
+        if (state == null || state.type != event.type)
+        {
+            state = new KeyState(event.type);
+            pendingByKey.put(event.pendingKey, state);
+        }
+        if (event.before)
+        {
+            // a later after event must not be merged into an earlier one
+            state.before = event;
+            state.after = null;
+        }
+        else
+        {
+            state.after = event;
+        }
+    }
+
+    /**
+     * Removes the oldest event from the buffer. The lock must be held, and
+     * the buffer must not be empty.
+     *
+     * @return the oldest event
+     */
+    private PendingEvent take()
+    {
+        PendingEvent event = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        count--;
+        notFull.signal();
+
+        if (event.pendingKey != null)
+        {
+            KeyState state = pendingByKey.get(event.pendingKey);
+            if (state != null && (state.after == event
+                    || (state.after == null && state.before == event)))
+            {
+                pendingByKey.remove(event.pendingKey);
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Starts the worker thread if necessary. The lock must be held.
+     */
+    private void startWorker()
+    {
+        if (worker == null)
+        {
+            worker = threadFactory.newThread(this::deliverEvents);
+            worker.start();
+        }
+    }
+
+    /**
+     * The main loop of the worker thread.
+     */
+    private void deliverEvents()
+    {
+        while (true)
+        {
+            PendingEvent event;
+            lock.lock();
+            try
+            {
+                delivering = false;
+                while (count == 0)
+                {
+                    idle.signalAll();
+                    if (closed)
+                    {
+                        worker = null;
+                        return;
+                    }
+                    notEmpty.awaitUninterruptibly();
+                }
+                event = take();
+                event.done = true;
+                delivering = true;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            boolean delivered = false;
+            try
+            {
+                event.source.deliverEvent(event.type, event.key, event.value,
+                        event.before);
+                delivered = true;
+            }
+            catch (RuntimeException rex)
+            {
+                delivered = true;
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(
+                        current, rex);
+            }
+            finally
+            {
+                if (!delivered)
+                {
+                    // an Error escaped from a listener and terminates this
+                    // thread; hand the remaining events to a new worker
+                    replaceWorker();
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by a worker thread which is terminated by an {@code Error}. A
+     * new worker is started if events are pending; otherwise, the dispatcher
+     * becomes idle, and the next event starts a new worker.
+     */
+    private void replaceWorker()
+    {
+        lock.lock();
+        try
+        {
+            delivering = false;
+            worker = null;
+            if (count > 0)
+            {
+                startWorker();
+            }
+            else
+            {
+                idle.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * An event waiting for delivery. All fields are accessed with the lock
+     * held, except by the worker after the event has been marked as done.
+     */
+    private static final class PendingEvent
+    {
+        /** The configuration which fired the event. */
+        final AbstractConfiguration source;
+
+        /** The event type. */
+        final EventType<? extends ConfigurationEvent> type;
+
+        /** The name of the affected property. */
+        final String key;
+
+        /** The flag whether the event is fired before the change. */
+        final boolean before;
+
+        /** The key for coalescing; <b>null</b> for events without a name. */
+        final PendingKey pendingKey;
+
+        /** The value of the event; updated when coalescing. */
+        Object value;
+
+        /** A flag whether the event has been removed from the buffer. */
+        boolean done;
+
+        PendingEvent(AbstractConfiguration source,
+                EventType<? extends ConfigurationEvent> type, String key,
+                Object value, boolean before, PendingKey pendingKey)
+        {
+            this.source = source;
+            this.type = type;
+            this.key = key;
+            this.value = value;
+            this.before = before;
+            this.pendingKey = pendingKey;
+        }
+    }
+
+    /**
+     * The latest pending events for a property.
+     */
+    private static final class KeyState
+    {
+        /** The type of the events. */
+        final EventType<? extends ConfigurationEvent> type;
+
+        /** The latest pending event fired before a change. */
+        PendingEvent before;
+
+        /** The latest pending event fired after a change. */
+        PendingEvent after;
+
+        KeyState(EventType<? extends ConfigurationEvent> type)
+        {
+            this.type = type;
+        }
+    }
+
+    /**
+     * The key for coalescing: a property of a specific configuration.
+     */
+    private static final class PendingKey
+    {
+        /** The configuration. */
+        private final AbstractConfiguration source;
+
+        /** The name of the property. */
+        private final String key;
+
+        PendingKey(AbstractConfiguration source, String key)
+        {
+            this.source = source;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof PendingKey))
+            {
+                return false;
+            }
+            PendingKey other = (PendingKey) obj;
+            return source == other.source && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(source), key);
+        }
+    }
+}
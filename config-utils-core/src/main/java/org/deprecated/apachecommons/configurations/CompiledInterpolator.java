@@ -0,0 +1,666 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.commons.configuration2.ConfigurationLookup;
+import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
+import org.apache.commons.configuration2.interpol.Lookup;
+
+/**
+ * <p>
+ * A helper class performing variable interpolation for an
+ * {@link AbstractConfiguration} with compiled templates and a cache of
+ * resolved values.
+ * </p>
+ * <p>
+ * Each string is parsed only once into a template consisting of literal and
+ * variable segments. When a template is resolved, all property keys read
+ * (directly or through nested variables) are recorded. The result is cached
+ * and registered with each of these dependencies; it is dropped as soon as
+ * one of them is changed through the configuration (see
+ * {@link #invalidate(String)}). A cache hit therefore costs a single map
+ * lookup and does not read any property. Changes bypassing the configuration
+ * (e.g. on the map returned by {@link MapConfiguration#getMap()}) are not
+ * seen by cached results. A variable which refers to itself, directly or
+ * through other variables, causes an {@code IllegalStateException} before
+ * anything is cached.
+ * </p>
+ * <p>
+ * The syntax and the results are the same as with the
+ * {@code ConfigurationInterpolator}: variables have the form
+ * <code>${name}</code> or <code>${name:-default}</code>, <code>$${</code>
+ * escapes a variable, unresolvable variables remain unchanged, and if the
+ * whole string is a single variable, a non-string value is returned as is.
+ * A variable embedded in a longer string is replaced by the string form of
+ * its value, so a variable with multiple values yields the string form of
+ * the whole collection (e.g. <code>[a, b]</code>).
+ * For variables with a registered prefix (like <code>${sys:user.home}</code>)
+ * and for all variables which are not resolved by this configuration, the
+ * {@code ConfigurationInterpolator} is queried; results containing such
+ * variables are not cached. If the configuration lookup is not one of the
+ * default lookups of the interpolator, or if a variable name contains another
+ * variable, interpolation is completely delegated to the
+ * {@code ConfigurationInterpolator}.
+ * </p>
+ * <p>
+ * An instance is bound to a configuration and to the state of its
+ * {@code ConfigurationInterpolator} at construction time. It is thread-safe.
+ * The numbers of cached templates and results are limited; if a cache is
+ * full, its least recently used entry is evicted.
+ * </p>
+ */
+final class CompiledInterpolator
+{
+    /** The maximum number of cached templates and of cached results. */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    /** The start of a variable. */
+    private static final String VAR_START = "${";
+
+    /** The end of a variable. */
+    private static final char VAR_END = '}';
+
+    /** The escaped start of a variable. */
+    private static final String ESCAPED_VAR_START = "$${";
+
+    /** The separator between a variable name and its default value. */
+    private static final String DEFAULT_SEPARATOR = ":-";
+
+    /** The separator between the prefix and the name of a variable. */
+    private static final char PREFIX_SEPARATOR = ':';
+
+    /** The configuration whose values are interpolated. */
+    private final AbstractConfiguration configuration;
+
+    /** The interpolator of the configuration. */
+    private final ConfigurationInterpolator interpolator;
+
+    /** The default lookups which are queried before the configuration. */
+    private final List<Lookup> precedingLookups;
+
+    /** A flag whether templates are used at all. */
+    private final boolean enabled;
+
+    /** The compiled templates by their source string. */
+    private final LruCache<String, Template> templates = new LruCache<>();
+
+    /** The resolved values by their source string. */
+    private final ResultCache results = new ResultCache();
+
+    /**
+     * Creates a new instance of {@code CompiledInterpolator}.
+     *
+     * @param configuration the configuration
+     * @param interpolator the interpolator of the configuration
+     */
+    CompiledInterpolator(AbstractConfiguration configuration,
+            ConfigurationInterpolator interpolator)
+    {
+        this.configuration = configuration;
+        this.interpolator = interpolator;
+
+        List<Lookup> preceding = new ArrayList<>();
+        boolean found = false;
+        for (Lookup lookup : interpolator.getDefaultLookups())
+        {
+            if (lookup instanceof ConfigurationLookup
+                    && ((ConfigurationLookup) lookup)
+                            .getConfiguration() == configuration)
+            {
+                found = true;
+                break;
+            }
+            preceding.add(lookup);
+        }
+        enabled = found;
+        precedingLookups = preceding;
+    }
+
+    /**
+     * Checks whether this object can be used for the given configuration and
+     * interpolator.
+     *
+     * @param config the configuration
+     * @param ci the interpolator
+     * @return a flag whether this object is bound to these objects
+     */
+    boolean isFor(AbstractConfiguration config, ConfigurationInterpolator ci)
+    {
+        return configuration == config && interpolator == ci;
+    }
+
+    /**
+     * Interpolates the given value.
+     *
+     * @param value the value
+     * @return the value with all variables resolved
+     * @throws IllegalStateException if a cycle of variables is detected
+     */
+    Object interpolate(Object value)
+    {
+        if (!(value instanceof String)
+                || ((String) value).indexOf(VAR_START) < 0)
+        {
+            return value;
+        }
+        if (!enabled)
+        {
+            return interpolator.interpolate(value);
+        }
+
+        String source = (String) value;
+        Result cached = results.get(source);
+        if (cached != null)
+        {
+            return cached.value;
+        }
+
+        long generation = results.generation();
+        Resolution resolution = new Resolution(precedingLookups.isEmpty());
+        Object result = resolve(source, resolution);
+        if (resolution.cacheable)
+        {
+            results.put(source, new Result(result, resolution.dependencies),
+                    generation);
+        }
+        return result;
+    }
+
+    /**
+     * Drops all cached results depending on the given key. This method is
+     * called by the configuration after each update of a property.
+     *
+     * @param key the key which has been changed
+     */
+    void invalidate(String key)
+    {
+        results.invalidate(key);
+    }
+
+    /**
+     * Drops all cached results. This method is called by the configuration
+     * after updates affecting an unknown set of properties.
+     */
+    void invalidateAll()
+    {
+        results.invalidateAll();
+    }
+
+    /**
+     * Resolves a string on the top level. If it consists of a single
+     * variable, the value of this variable is returned even if it is not a
+     * string.
+     */
+    private Object resolve(String source, Resolution resolution)
+    {
+        Template template = template(source);
+        if (template.variableNamesInterpolated)
+        {
+            resolution.cacheable = false;
+            return interpolator.interpolate(source);
+        }
+
+        if (template.isSingleVariable())
+        {
+            Segment variable = template.segments[0];
+            if (variable.defaultValue == null)
+            {
+                Object value = lookup(variable.name, resolution);
+                if (value != null && !(value instanceof String))
+                {
+                    return value;
+                }
+            }
+        }
+        return substitute(template, source, resolution);
+    }
+
+    /**
+     * Resolves all variables in a string.
+     */
+    private String resolveString(String source, Resolution resolution)
+    {
+        if (source.indexOf(VAR_START) < 0)
+        {
+            return source;
+        }
+
+        Template template = template(source);
+        if (template.variableNamesInterpolated)
+        {
+            resolution.cacheable = false;
+            return Objects.toString(interpolator.interpolate(source), null);
+        }
+        return substitute(template, source, resolution);
+    }
+
+    /**
+     * Concatenates the segments of a template replacing all variables by
+     * their resolved values.
+     */
+    private String substitute(Template template, String source,
+            Resolution resolution)
+    {
+        StringBuilder buf = new StringBuilder(source.length());
+        for (Segment segment : template.segments)
+        {
+            if (segment.name == null)
+            {
+                buf.append(segment.text);
+            }
+            else
+            {
+                buf.append(resolveVariable(segment, source, resolution));
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Resolves a single variable including the variables contained in its
+     * value.
+     */
+    private String resolveVariable(Segment variable, String source,
+            Resolution resolution)
+    {
+        resolution.enter(variable.name, source);
+        try
+        {
+            Object value = lookup(variable.name, resolution);
+            if (value != null)
+            {
+                return resolveString(String.valueOf(value), resolution);
+            }
+            if (variable.defaultValue != null)
+            {
+                return resolveString(variable.defaultValue, resolution);
+            }
+            return variable.text;
+        }
+        finally
+        {
+            resolution.leave(variable.name);
+        }
+    }
+
+    /**
+     * Obtains the raw value of a variable. Property keys of the configuration
+     * are recorded as dependencies.
+     */
+    private Object lookup(String name, Resolution resolution)
+    {
+        int prefixPos = name.indexOf(PREFIX_SEPARATOR);
+        if (prefixPos >= 0 && interpolator.prefixSet()
+                .contains(name.substring(0, prefixPos)))
+        {
+            resolution.cacheable = false;
+            return interpolator.resolve(name);
+        }
+
+        for (Lookup lookup : precedingLookups)
+        {
+            Object value = lookup.lookup(name);
+            if (value != null)
+            {
+                return value;
+            }
+        }
+
+        Object value = configuration.getProperty(name);
+        resolution.dependencies.add(name);
+        if (value == null)
+        {
+            // the parent interpolator may know this variable
+            value = interpolator.resolve(name);
+            if (value != null)
+            {
+                resolution.cacheable = false;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the template for the given string, compiling it if necessary.
+     */
+    private Template template(String source)
+    {
+        Template template = templates.get(source);
+        if (template == null)
+        {
+            template = Template.compile(source);
+            templates.put(source, template);
+        }
+        return template;
+    }
+
+    /**
+     * A cache with a limited number of entries which evicts the least
+     * recently used entry if it is full.
+     */
+    private static final class LruCache<K, V>
+    {
+        /** The cached entries in LRU order. Guarded by itself. */
+        private final Map<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                return size() > MAX_CACHE_SIZE;
+            }
+        };
+
+        V get(K key)
+        {
+            synchronized (entries)
+            {
+                return entries.get(key);
+            }
+        }
+
+        void put(K key, V value)
+        {
+            synchronized (entries)
+            {
+                entries.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * The cache of resolved values. Besides the results in LRU order it holds
+     * the sources of the results depending on each key, so that an update
+     * drops exactly the affected results. A generation counter, which is
+     * incremented by each invalidation, prevents that a result computed from
+     * values read before an update is stored after it.
+     */
+    private static final class ResultCache
+    {
+        /** The cached results in LRU order. Guarded by this. */
+        private final LinkedHashMap<String, Result> entries =
+                new LinkedHashMap<>(16, 0.75f, true);
+
+        /** The sources of the cached results by key. Guarded by this. */
+        private final Map<String, Set<String>> dependents = new HashMap<>();
+
+        /** The number of invalidations so far. Guarded by this. */
+        private long generation;
+
+        synchronized long generation()
+        {
+            return generation;
+        }
+
+        synchronized Result get(String source)
+        {
+            return entries.get(source);
+        }
+
+        /**
+         * Stores a result unless an invalidation has happened since the
+         * given generation.
+         */
+        synchronized void put(String source, Result result, long expected)
+        {
+            if (expected != generation)
+            {
+                return;
+            }
+
+            Result previous = entries.put(source, result);
+            if (previous != null)
+            {
+                unregister(source, previous);
+            }
+            for (String key : result.dependencies)
+            {
+                dependents.computeIfAbsent(key, k -> new HashSet<>())
+                        .add(source);
+            }
+
+            if (entries.size() > MAX_CACHE_SIZE)
+            {
+                Iterator<Map.Entry<String, Result>> it =
+                        entries.entrySet().iterator();
+                Map.Entry<String, Result> eldest = it.next();
+                it.remove();
+                unregister(eldest.getKey(), eldest.getValue());
+            }
+        }
+
+        synchronized void invalidate(String key)
+        {
+            generation++;
+            Set<String> sources = dependents.remove(key);
+            if (sources != null)
+            {
+                for (String source : sources)
+                {
+                    Result result = entries.remove(source);
+                    if (result != null)
+                    {
+                        unregister(source, result);
+                    }
+                }
+            }
+        }
+
+        synchronized void invalidateAll()
+        {
+            generation++;
+            entries.clear();
+            dependents.clear();
+        }
+
+        /**
+         * Removes the registrations of a result which is no longer cached.
+         */
+        private void unregister(String source, Result result)
+        {
+            for (String key : result.dependencies)
+            {
+                Set<String> sources = dependents.get(key);
+                if (sources != null && sources.remove(source)
+                        && sources.isEmpty())
+                {
+                    dependents.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * A compiled string: a sequence of literal and variable segments.
+     */
+    private static final class Template
+    {
+        /** The segments of this template. */
+        final Segment[] segments;
+
+        /**
+         * A flag whether a variable name contains another variable; such
+         * templates are handled by the {@code ConfigurationInterpolator}.
+         */
+        final boolean variableNamesInterpolated;
+
+        private Template(Segment[] segments, boolean variableNamesInterpolated)
+        {
+            this.segments = segments;
+            this.variableNamesInterpolated = variableNamesInterpolated;
+        }
+
+        boolean isSingleVariable()
+        {
+            return segments.length == 1 && segments[0].name != null;
+        }
+
+        /**
+         * Parses the given string.
+         *
+         * @param source the string
+         * @return the template
+         */
+        static Template compile(String source)
+        {
+            List<Segment> segments = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            boolean nested = false;
+            int pos = 0;
+            while (pos < source.length())
+            {
+                if (source.startsWith(ESCAPED_VAR_START, pos))
+                {
+                    literal.append(VAR_START);
+                    pos += ESCAPED_VAR_START.length();
+                    continue;
+                }
+
+                int end = source.startsWith(VAR_START, pos)
+                        ? source.indexOf(VAR_END, pos + VAR_START.length())
+                        : -1;
+                if (end < 0)
+                {
+                    literal.append(source.charAt(pos++));
+                    continue;
+                }
+
+                if (literal.length() > 0)
+                {
+                    segments.add(Segment.literal(literal.toString()));
+                    literal.setLength(0);
+                }
+                String expression =
+                        source.substring(pos + VAR_START.length(), end);
+                nested |= expression.contains(VAR_START);
+                segments.add(Segment.variable(source.substring(pos, end + 1),
+                        expression));
+                pos = end + 1;
+            }
+            if (literal.length() > 0)
+            {
+                segments.add(Segment.literal(literal.toString()));
+            }
+            return new Template(segments.toArray(new Segment[0]), nested);
+        }
+    }
+
+    /**
+     * A segment of a template. For literal segments, the name is
+     * <b>null</b>.
+     */
+    private static final class Segment
+    {
+        /** The literal text or the source text of the variable. */
+        final String text;
+
+        /** The variable name. */
+        final String name;
+
+        /** The default value of the variable or <b>null</b>. */
+        final String defaultValue;
+
+        private Segment(String text, String name, String defaultValue)
+        {
+            this.text = text;
+            this.name = name;
+            this.defaultValue = defaultValue;
+        }
+
+        static Segment literal(String text)
+        {
+            return new Segment(text, null, null);
+        }
+
+        static Segment variable(String text, String expression)
+        {
+            int defaultPos = expression.indexOf(DEFAULT_SEPARATOR);
+            return (defaultPos < 0)
+                    ? new Segment(text, expression, null)
+                    : new Segment(text, expression.substring(0, defaultPos),
+                            expression.substring(defaultPos
+                                    + DEFAULT_SEPARATOR.length()));
+        }
+    }
+
+    /**
+     * A cached result with the keys it depends on.
+     */
+    private static final class Result
+    {
+        /** The resolved value. */
+        final Object value;
+
+        /** The keys read during resolution. */
+        final Set<String> dependencies;
+
+        Result(Object value, Set<String> dependencies)
+        {
+            this.value = value;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * The state of a single resolution: the keys read, the variables
+     * currently being resolved and whether the result may be cached.
+     */
+    private static final class Resolution
+    {
+        /** The keys read. */
+        final Set<String> dependencies = new HashSet<>();
+
+        /** The variables being resolved, used to detect cycles. */
+        final Set<String> variables = new LinkedHashSet<>();
+
+        /** A flag whether the result may be cached. */
+        boolean cacheable;
+
+        Resolution(boolean cacheable)
+        {
+            this.cacheable = cacheable;
+        }
+
+        void enter(String name, String source)
+        {
+            if (!variables.add(name))
+            {
+                List<String> chain = new ArrayList<>(variables);
+                chain = chain.subList(chain.indexOf(name), chain.size());
+                chain.add(name);
+                throw new IllegalStateException(
+                        "Infinite loop in property interpolation of " + source
+                                + ": " + String.join("->", chain));
+            }
+        }
+
+        void leave(String name)
+        {
+            variables.remove(name);
+        }
+    }
+}
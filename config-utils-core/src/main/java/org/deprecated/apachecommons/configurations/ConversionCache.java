@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.configuration2.convert.ConversionHandler;
+
+/**
+ * <p>
+ * A cache for the results of the conversions performed by the typed getters
+ * of {@link AbstractConfiguration}, e.g. {@code getInt()} or
+ * {@code getString()}.
+ * </p>
+ * <p>
+ * For each key the converted values are stored together with the raw value
+ * they have been obtained from. The identity of the raw value serves as the
+ * version of the entry: a cached result is only returned if
+ * {@code getProperty()} still yields the very same object. So an update of
+ * the property makes the entry invalid, even if the cache is not notified.
+ * Only raw values whose conversion does not depend on other properties are
+ * cached, i.e. numbers, booleans and strings without variables.
+ * </p>
+ * <p>
+ * A hit does not allocate any objects: the raw value is read by
+ * {@code getProperty()} without a lambda, and the converted values are stored
+ * as wrapper objects which are unwrapped by the caller. On a miss the raw
+ * value already read is converted, so it is not read again. An instance is
+ * bound to the configuration and the {@code ConversionHandler} it has been
+ * created for.
+ * </p>
+ */
+final class ConversionCache
+{
+    /** The index of the Boolean conversions. */
+    private static final int BOOLEAN = 0;
+
+    /** The index of the Double conversions. */
+    private static final int DOUBLE = 1;
+
+    /** The index of the Integer conversions. */
+    private static final int INTEGER = 2;
+
+    /** The index of the Long conversions. */
+    private static final int LONG = 3;
+
+    /** The index of the String conversions. */
+    private static final int STRING = 4;
+
+    /** The number of target types supported. */
+    private static final int TYPE_COUNT = 5;
+
+    /** The start marker of a variable. */
+    private static final String VARIABLE_START = "${";
+
+    /** The configuration this cache belongs to. */
+    private final AbstractConfiguration owner;
+
+    /** The conversion handler which produced the cached values. */
+    private final ConversionHandler handler;
+
+    /** The cached conversions by key. */
+    private final ConcurrentMap<String, Entry> entries =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of {@code ConversionCache}.
+     *
+     * @param owner the configuration
+     * @param handler the current conversion handler of the configuration
+     */
+    ConversionCache(AbstractConfiguration owner, ConversionHandler handler)
+    {
+        this.owner = owner;
+        this.handler = handler;
+    }
+
+    /**
+     * Checks whether this cache can be used by the given configuration with
+     * the given conversion handler.
+     *
+     * @param config the configuration
+     * @param conversionHandler the current conversion handler
+     * @return a flag whether this cache is valid for these objects
+     */
+    boolean isFor(AbstractConfiguration config,
+            ConversionHandler conversionHandler)
+    {
+        return owner == config && handler == conversionHandler;
+    }
+
+    /**
+     * Returns the cached conversion of the given raw value to the given class.
+     *
+     * @param <T> the target type
+     * @param key the key of the property
+     * @param value the current raw value of the property
+     * @param cls the target class
+     * @return the cached converted value or <b>null</b> if there is none
+     */
+    <T> T get(String key, Object value, Class<T> cls)
+    {
+        int type = typeIndex(cls);
+        if (type < 0 || value == null)
+        {
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null || entry.source != value)
+        {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) entry.converted[type];
+        return result;
+    }
+
+    /**
+     * Stores the result of a conversion. Calls for target classes or raw
+     * values which are not supported are ignored.
+     *
+     * @param key the key of the property
+     * @param value the raw value which has been converted
+     * @param cls the target class
+     * @param converted the result of the conversion
+     */
+    void put(String key, Object value, Class<?> cls, Object converted)
+    {
+        int type = typeIndex(cls);
+        if (type < 0 || converted == null || !isCacheable(value))
+        {
+            return;
+        }
+
+        entries.compute(key, (k, entry) -> {
+            Entry result = (entry != null && entry.source == value)
+                    ? entry : new Entry(value);
+            result.converted[type] = converted;
+            return result;
+        });
+    }
+
+    /**
+     * Removes the cached conversions of the given key.
+     *
+     * @param key the key of the property which has been changed
+     */
+    void invalidate(String key)
+    {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all cached conversions.
+     */
+    void invalidateAll()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Checks whether the conversions of the given raw value can be cached.
+     * This is the case if they cannot change as long as the value itself is
+     * not changed.
+     *
+     * @param value the raw value
+     * @return a flag whether the conversions of this value can be cached
+     */
+    private static boolean isCacheable(Object value)
+    {
+        if (value instanceof String)
+        {
+            return !((String) value).contains(VARIABLE_START);
+        }
+        return value instanceof Number || value instanceof Boolean;
+    }
+
+    /**
+     * Returns the index of the given target class in the arrays of cached
+     * conversions.
+     *
+     * @param cls the target class
+     * @return the index or -1 if the class is not supported
+     */
+    private static int typeIndex(Class<?> cls)
+    {
+        if (cls == Integer.class)
+        {
+            return INTEGER;
+        }
+        if (cls == String.class)
+        {
+            return STRING;
+        }
+        if (cls == Long.class)
+        {
+            return LONG;
+        }
+        if (cls == Boolean.class)
+        {
+            return BOOLEAN;
+        }
+        if (cls == Double.class)
+        {
+            return DOUBLE;
+        }
+        return -1;
+    }
+
+    /**
+     * The cached conversions of a single raw value. The array is only
+     * modified while the entry is locked by {@code compute()}; readers see
+     * either <b>null</b> or a completely converted value.
+     */
+    private static final class Entry
+    {
+        /** The raw value the conversions are based on. */
+        final Object source;
+
+        /** The converted values by target type. */
+        final Object[] converted = new Object[TYPE_COUNT];
+
+        /**
+         * Creates a new instance of {@code Entry}.
+         *
+         * @param source the raw value
+         */
+        Entry(Object source)
+        {
+            this.source = source;
+        }
+    }
+}
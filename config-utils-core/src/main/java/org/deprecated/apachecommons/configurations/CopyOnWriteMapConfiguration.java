@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A {@link MapConfiguration} which never modifies its map, but replaces it on
+ * each update (copy-on-write).
+ * </p>
+ * <p>
+ * A write operation copies the current map, applies the change to the copy and
+ * publishes the copy through the volatile {@code map} field. A map that has
+ * been published is never changed again. Therefore, read operations like
+ * {@code getProperty()}, {@code containsKey()} or {@code getKeys()} do not use
+ * the {@code Synchronizer} at all; they always see a consistent state and do
+ * not contend with each other or with writers. Key iterators are based on the
+ * map at the time of their creation and do not support {@code remove()}.
+ * </p>
+ * <p>
+ * Write operations are serialized internally, so this class is thread-safe
+ * without a special {@code Synchronizer}. A {@code Synchronizer} set on this
+ * configuration is still used by writers, so that code which locks the
+ * configuration explicitly is not disturbed by concurrent updates.
+ * </p>
+ * <p>
+ * Each update copies the whole map. This class is meant for configurations
+ * which are read very often and updated rarely; the initial content should be
+ * passed to the constructor rather than added property by property.
+ * </p>
+ */
+public class CopyOnWriteMapConfiguration extends MapConfiguration
+{
+    /** The lock serializing write operations. */
+    private Object writeLock = new Object();
+
+    /**
+     * Creates a new, empty instance of {@code CopyOnWriteMapConfiguration}.
+     */
+    public CopyOnWriteMapConfiguration()
+    {
+        this(Collections.<String, Object> emptyMap());
+    }
+
+    /**
+     * Creates a new instance of {@code CopyOnWriteMapConfiguration} with the
+     * content of the given map. The map is copied; later changes on it do not
+     * affect this configuration.
+     *
+     * @param map the map with the initial content
+     */
+    public CopyOnWriteMapConfiguration(Map<String, ?> map)
+    {
+        super(new HashMap<String, Object>(map));
+    }
+
+    /**
+     * {@inheritDoc} The map returned by this implementation cannot be
+     * modified. It reflects the content of this configuration at the time of
+     * the call.
+     */
+    @Override
+    public Map<String, Object> getMap()
+    {
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * {@inheritDoc} This implementation adds all values with a single copy of
+     * the map.
+     */
+    @Override
+    protected void addPropertyInternal(String key, Object value)
+    {
+        synchronized (writeLock)
+        {
+            publish(key, getPropertyInternal(key),
+                    getListDelimiterHandler().parse(value));
+        }
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value)
+    {
+        synchronized (writeLock)
+        {
+            publish(key, getPropertyInternal(key),
+                    Collections.singleton(value));
+        }
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key)
+    {
+        synchronized (writeLock)
+        {
+            if (map.containsKey(key))
+            {
+                publish(key, null, Collections.emptyList());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation replaces the values of the property
+     * with a single copy of the map.
+     */
+    @Override
+    protected void setPropertyInternal(String key, Object value)
+    {
+        synchronized (writeLock)
+        {
+            publish(key, null, getListDelimiterHandler().parse(value));
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation sets all properties with a single copy
+     * of the map.
+     */
+    @Override
+    protected void setPropertiesInternal(Map<String, ?> properties)
+    {
+        synchronized (writeLock)
+        {
+            Map<String, Object> copy = new HashMap<>(map);
+            for (Map.Entry<String, ?> e : properties.entrySet())
+            {
+                update(copy, e.getKey(), null,
+                        getListDelimiterHandler().parse(e.getValue()));
+            }
+            map = copy;
+        }
+        invalidateSplitCache(null);
+    }
+
+    /**
+     * {@inheritDoc} This implementation adds all values with a single copy of
+     * the map.
+     */
+    @Override
+    protected void addPropertiesInternal(Map<String, ?> properties)
+    {
+        synchronized (writeLock)
+        {
+            Map<String, Object> copy = new HashMap<>(map);
+            for (Map.Entry<String, ?> e : properties.entrySet())
+            {
+                update(copy, e.getKey(), getPropertyInternal(e.getKey()),
+                        getListDelimiterHandler().parse(e.getValue()));
+            }
+            map = copy;
+        }
+        invalidateSplitCache(null);
+    }
+
+    /**
+     * {@inheritDoc} This implementation just publishes an empty map.
+     */
+    @Override
+    protected void clearInternal()
+    {
+        synchronized (writeLock)
+        {
+            map = new HashMap<>();
+        }
+        invalidateSplitCache(null);
+    }
+
+    /**
+     * {@inheritDoc} The maps of this configuration are never modified after
+     * they have been published, so this implementation returns <b>true</b>.
+     */
+    @Override
+    protected boolean isLockFreeReadSupported()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc} The iterator returned by this implementation does not
+     * support {@code remove()}, because the map must not be modified.
+     */
+    @Override
+    protected Iterator<String> getKeysInternal()
+    {
+        return Collections.unmodifiableSet(map.keySet()).iterator();
+    }
+
+    /**
+     * Returns a copy of this object. The copy has its own map and can be
+     * updated independently.
+     *
+     * @return the copy
+     */
+    @Override
+    public Object clone()
+    {
+        CopyOnWriteMapConfiguration copy =
+                (CopyOnWriteMapConfiguration) super.clone();
+        copy.writeLock = new Object();
+        return copy;
+    }
+
+    /**
+     * Publishes a copy of the current map in which the given property has the
+     * given values. The property is removed if there are no values. The
+     * caller must hold the write lock.
+     *
+     * @param key the key of the property
+     * @param previousValue the value the new values are added to or
+     *        <b>null</b>
+     * @param values the values to be added
+     */
+    private void publish(String key, Object previousValue,
+            Iterable<?> values)
+    {
+        Map<String, Object> copy = new HashMap<>(map);
+        update(copy, key, previousValue, values);
+        map = copy;
+        invalidateSplitCache(key);
+    }
+
+    /**
+     * Sets the given property in a copy of the map to the previous value
+     * combined with the given values. The property is removed if there are no
+     * values.
+     *
+     * @param copy the copy of the map
+     * @param key the key of the property
+     * @param previousValue the value the new values are added to or
+     *        <b>null</b>
+     * @param values the values to be added
+     */
+    private static void update(Map<String, Object> copy, String key,
+            Object previousValue, Iterable<?> values)
+    {
+        Object newValue = previousValue;
+        for (Object value : values)
+        {
+            newValue = combine(newValue, value);
+        }
+
+        if (newValue == null)
+        {
+            copy.remove(key);
+        }
+        else
+        {
+            copy.put(key, newValue);
+        }
+    }
+
+    /**
+     * Adds a value to the current value of a property. The list of values is
+     * copied rather than modified, because it may be referenced by a
+     * published map.
+     *
+     * @param previousValue the current value or <b>null</b>
+     * @param value the value to be added
+     * @return the new value of the property
+     */
+    private static Object combine(Object previousValue, Object value)
+    {
+        if (previousValue == null)
+        {
+            return value;
+        }
+
+        List<Object> list = new ArrayList<>();
+        if (previousValue instanceof List)
+        {
+            list.addAll((List<?>) previousValue);
+        }
+        else
+        {
+            list.add(previousValue);
+        }
+        list.add(value);
+        return list;
+    }
+}
@@ -0,0 +1,603 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An unmodifiable snapshot of a configuration, created by
+ * {@link AbstractConfiguration#freeze()}.
+ * </p>
+ * <p>
+ * The keys are mapped to positions in flat arrays by a minimal perfect hash
+ * function (hash and displace): a first hash selects a bucket, and a small
+ * per-bucket displacement value either is the position itself or the seed of
+ * a second hash yielding it. A lookup thus costs one or two hash computations
+ * and a single comparison of the key, and never probes. Values are stored
+ * interpolated; {@code int}, {@code long}, {@code double}, {@code boolean}
+ * and {@code String} conversions are performed when the snapshot is created,
+ * so the corresponding getters just read an array element. Other conversions
+ * are performed on each call as usual.
+ * </p>
+ * <p>
+ * Reads do not use the {@code Synchronizer}, and as the content cannot be
+ * changed, no events are fired. All update methods throw an
+ * {@code UnsupportedOperationException}. Default values passed to the getters
+ * are not interpolated.
+ * </p>
+ */
+public final class FrozenConfiguration extends AbstractConfiguration
+{
+    /** The maximum seed tried when placing the keys of a bucket. */
+    private static final int MAX_SEED = 1 << 16;
+
+    /** Flag for a value which can be obtained as {@code long}. */
+    private static final byte LONG = 1;
+
+    /** Flag for a value which can be obtained as {@code int}. */
+    private static final byte INT = 2;
+
+    /** Flag for a value which can be obtained as {@code double}. */
+    private static final byte DOUBLE = 4;
+
+    /** Flag for a value which can be obtained as {@code boolean}. */
+    private static final byte BOOLEAN = 8;
+
+    /** Flag for the boolean value <b>true</b>. */
+    private static final byte TRUE = 16;
+
+    /** The keys by position. */
+    private final String[] keys;
+
+    /** The values by position. */
+    private final Object[] values;
+
+    /** The string values by position. */
+    private final String[] strings;
+
+    /** The values converted to {@code long} by position. */
+    private final long[] longs;
+
+    /** The values converted to {@code double} by position. */
+    private final double[] doubles;
+
+    /** The available conversions by position. */
+    private final byte[] conversions;
+
+    /** The displacement values by bucket, see {@link #position(String)}. */
+    private final int[] displacements;
+
+    /** The keys in the order of the original configuration. */
+    private final List<String> orderedKeys;
+
+    /** The keys in alphabetical order. */
+    private final String[] sortedKeys;
+
+    /** The index used if no perfect hash could be found, otherwise null. */
+    private final Map<String, Integer> fallbackIndex;
+
+    /**
+     * Creates a new instance of {@code FrozenConfiguration}. The settings
+     * relevant for data conversion are taken over from the original
+     * configuration.
+     *
+     * @param properties the interpolated values by key
+     * @param original the configuration which is frozen
+     */
+    FrozenConfiguration(Map<String, Object> properties,
+            AbstractConfiguration original)
+    {
+        setConversionHandler(original.getConversionHandler());
+        setListDelimiterHandler(original.getListDelimiterHandler());
+        setThrowExceptionOnMissing(original.isThrowExceptionOnMissing());
+        setConfigurationDecoder(original.getConfigurationDecoder());
+
+        int n = properties.size();
+        orderedKeys = Collections.unmodifiableList(
+                new ArrayList<>(properties.keySet()));
+        sortedKeys = orderedKeys.toArray(new String[n]);
+        Arrays.sort(sortedKeys);
+
+        keys = new String[n];
+        displacements = new int[n];
+        fallbackIndex = placeKeys(orderedKeys, keys, displacements)
+                ? null : createFallbackIndex(keys);
+
+        values = new Object[n];
+        for (int i = 0; i < n; i++)
+        {
+            values[i] = properties.get(keys[i]);
+        }
+
+        strings = new String[n];
+        longs = new long[n];
+        doubles = new double[n];
+        conversions = new byte[n];
+        for (int i = 0; i < n; i++)
+        {
+            preconvert(i);
+        }
+    }
+
+    @Override
+    public String getString(String key)
+    {
+        int pos = position(key);
+        return (pos >= 0 && strings[pos] != null) ? strings[pos]
+                : super.getString(key);
+    }
+
+    @Override
+    public String getString(String key, String defaultValue)
+    {
+        int pos = position(key);
+        return (pos >= 0 && strings[pos] != null) ? strings[pos]
+                : super.getString(key, defaultValue);
+    }
+
+    @Override
+    public int getInt(String key)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & INT) != 0) ? (int) longs[pos]
+                : super.getInt(key);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & INT) != 0) ? (int) longs[pos]
+                : super.getInt(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & LONG) != 0) ? longs[pos]
+                : super.getLong(key);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & LONG) != 0) ? longs[pos]
+                : super.getLong(key, defaultValue);
+    }
+
+    @Override
+    public double getDouble(String key)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & DOUBLE) != 0) ? doubles[pos]
+                : super.getDouble(key);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & DOUBLE) != 0) ? doubles[pos]
+                : super.getDouble(key, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & BOOLEAN) != 0)
+                ? (conversions[pos] & TRUE) != 0 : super.getBoolean(key);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue)
+    {
+        int pos = position(key);
+        return (pos >= 0 && (conversions[pos] & BOOLEAN) != 0)
+                ? (conversions[pos] & TRUE) != 0
+                : super.getBoolean(key, defaultValue);
+    }
+
+    /**
+     * {@inheritDoc} This implementation returns the keys in alphabetical
+     * order. As the keys are sorted, only the matching keys are visited.
+     */
+    @Override
+    public Iterator<String> getKeys(String prefix)
+    {
+        List<String> result = new ArrayList<>();
+        if (position(prefix) >= 0)
+        {
+            result.add(prefix);
+        }
+
+        // all keys starting with the prefix and a dot are sorted between
+        // these bounds, as '/' is the character following '.'
+        String from = prefix + '.';
+        String to = prefix + '/';
+        int start = Arrays.binarySearch(sortedKeys, from);
+        for (int i = (start >= 0) ? start : -start - 1;
+                i < sortedKeys.length && sortedKeys[i].compareTo(to) < 0; i++)
+        {
+            result.add(sortedKeys[i]);
+        }
+        return Collections.unmodifiableList(result).iterator();
+    }
+
+    /**
+     * {@inheritDoc} The values have already been interpolated when this
+     * snapshot was created, so this implementation returns the passed in
+     * value.
+     */
+    @Override
+    protected Object interpolate(Object value)
+    {
+        return value;
+    }
+
+    /**
+     * {@inheritDoc} The content never changes, so this implementation returns
+     * <b>true</b>.
+     */
+    @Override
+    protected boolean isLockFreeReadSupported()
+    {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc} This configuration cannot be changed, so this
+     * implementation throws an exception.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    protected void beginWrite(boolean optimize)
+    {
+        throw new UnsupportedOperationException(
+                "A frozen configuration cannot be modified!");
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value)
+    {
+        throw new UnsupportedOperationException(
+                "A frozen configuration cannot be modified!");
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key)
+    {
+        throw new UnsupportedOperationException(
+                "A frozen configuration cannot be modified!");
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key)
+    {
+        int pos = position(key);
+        return (pos >= 0) ? values[pos] : null;
+    }
+
+    @Override
+    protected boolean isEmptyInternal()
+    {
+        return keys.length == 0;
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key)
+    {
+        return position(key) >= 0;
+    }
+
+    @Override
+    protected int sizeInternal()
+    {
+        return keys.length;
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal()
+    {
+        return orderedKeys.iterator();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + " [size=" + keys.length + "]";
+    }
+
+    /**
+     * Returns the position of the given key in the arrays or -1 if the key is
+     * not contained.
+     *
+     * @param key the key
+     * @return the position of this key
+     */
+    private int position(String key)
+    {
+        if (key == null || keys.length == 0)
+        {
+            return -1;
+        }
+        if (fallbackIndex != null)
+        {
+            Integer pos = fallbackIndex.get(key);
+            return (pos != null) ? pos.intValue() : -1;
+        }
+
+        int d = displacements[bucket(key, keys.length)];
+        int pos;
+        if (d < 0)
+        {
+            pos = -d - 1;
+        }
+        else if (d > 0)
+        {
+            pos = hash(d, key) % keys.length;
+        }
+        else
+        {
+            return -1;
+        }
+        return key.equals(keys[pos]) ? pos : -1;
+    }
+
+    /**
+     * Stores the conversions of the value at the given position which are
+     * supported by the getters of this class. The conversions are performed
+     * by the inherited methods, so the results are exactly the same. Numeric
+     * and boolean conversions are only attempted for values which may be
+     * convertible.
+     *
+     * @param pos the position
+     */
+    private void preconvert(int pos)
+    {
+        String key = keys[pos];
+        Object value = values[pos];
+        strings[pos] = super.getString(key);
+
+        Object first = (value instanceof List && !((List<?>) value).isEmpty())
+                ? ((List<?>) value).get(0) : value;
+        String text = (first instanceof String) ? ((String) first).trim()
+                : null;
+        if (first instanceof Number || (text != null && !text.isEmpty()
+                && "+-.0123456789#".indexOf(text.charAt(0)) >= 0))
+        {
+            try
+            {
+                longs[pos] = super.getLong(key);
+                conversions[pos] |= LONG;
+                if (longs[pos] == (int) longs[pos])
+                {
+                    conversions[pos] |= INT;
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // not convertible to long
+            }
+            try
+            {
+                doubles[pos] = super.getDouble(key);
+                conversions[pos] |= DOUBLE;
+            }
+            catch (RuntimeException e)
+            {
+                // not convertible to double
+            }
+        }
+        if (first instanceof Boolean || (text != null && text.length() <= 5))
+        {
+            try
+            {
+                if (super.getBoolean(key))
+                {
+                    conversions[pos] |= TRUE;
+                }
+                conversions[pos] |= BOOLEAN;
+            }
+            catch (RuntimeException e)
+            {
+                // not convertible to boolean
+            }
+        }
+    }
+
+    /**
+     * Computes the minimal perfect hash function for the given keys. The keys
+     * are stored in the target array at their positions, and the displacement
+     * values for the buckets are stored in the corresponding array. Buckets
+     * are processed by decreasing size: for a bucket with multiple keys, a
+     * seed is searched for which the second hash maps all its keys to free
+     * positions; a bucket with a single key is assigned a free position
+     * directly.
+     *
+     * @param source the keys
+     * @param target the array for the keys by position
+     * @param displacements the array for the displacement values
+     * @return a flag whether a perfect hash function could be found
+     */
+    private static boolean placeKeys(List<String> source, String[] target,
+            int[] displacements)
+    {
+        int n = target.length;
+        List<List<String>> buckets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+        {
+            buckets.add(new ArrayList<>(2));
+        }
+        for (String key : source)
+        {
+            buckets.get(bucket(key, n)).add(key);
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(
+                (Integer b) -> buckets.get(b).size()).reversed());
+
+        boolean[] used = new boolean[n];
+        int[] positions = new int[n];
+        int nextFree = 0;
+        for (int b : order)
+        {
+            List<String> bucket = buckets.get(b);
+            if (bucket.size() > 1)
+            {
+                int seed = findSeed(bucket, used, positions);
+                if (seed < 0)
+                {
+                    return false;
+                }
+                for (int i = 0; i < bucket.size(); i++)
+                {
+                    used[positions[i]] = true;
+                    target[positions[i]] = bucket.get(i);
+                }
+                displacements[b] = seed;
+            }
+            else if (bucket.size() == 1)
+            {
+                while (used[nextFree])
+                {
+                    nextFree++;
+                }
+                used[nextFree] = true;
+                target[nextFree] = bucket.get(0);
+                displacements[b] = -nextFree - 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches a seed for which the second hash maps all keys of a bucket to
+     * distinct free positions.
+     *
+     * @param bucket the keys of the bucket
+     * @param used the positions already occupied
+     * @param positions an array receiving the positions of the keys
+     * @return the seed or -1 if none was found
+     */
+    private static int findSeed(List<String> bucket, boolean[] used,
+            int[] positions)
+    {
+        int n = used.length;
+        for (int seed = 1; seed <= MAX_SEED; seed++)
+        {
+            boolean placed = true;
+            for (int i = 0; i < bucket.size() && placed; i++)
+            {
+                int pos = hash(seed, bucket.get(i)) % n;
+                placed = !used[pos];
+                for (int j = 0; j < i && placed; j++)
+                {
+                    placed = positions[j] != pos;
+                }
+                positions[i] = pos;
+            }
+            if (placed)
+            {
+                return seed;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a hash map index for the case that no perfect hash function
+     * could be found, e.g. because of pathological hash collisions.
+     *
+     * @param target the array for the keys by position
+     * @return the index
+     */
+    private Map<String, Integer> createFallbackIndex(String[] target)
+    {
+        Map<String, Integer> index =
+                new HashMap<>(Utils.mapCapacity(target.length));
+        for (int i = 0; i < target.length; i++)
+        {
+            target[i] = orderedKeys.get(i);
+            index.put(target[i], i);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the bucket of a key. This is based on the (cached) hash code of
+     * the string.
+     *
+     * @param key the key
+     * @param n the number of buckets
+     * @return the bucket
+     */
+    private static int bucket(String key, int n)
+    {
+        return (mix(key.hashCode()) & Integer.MAX_VALUE) % n;
+    }
+
+    /**
+     * Returns the seeded second hash of a key (FNV-1a over the characters).
+     * Unlike the hash code, it separates strings with equal hash codes.
+     *
+     * @param seed the seed
+     * @param key the key
+     * @return the non-negative hash value
+     */
+    private static int hash(int seed, String key)
+    {
+        int h = 0x811c9dc5 ^ (seed * 0x9e3779b9);
+        for (int i = 0; i < key.length(); i++)
+        {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        return mix(h) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Spreads the bits of a hash value (finalizer of MurmurHash3).
+     *
+     * @param h the hash value
+     * @return the mixed value
+     */
+    private static int mix(int h)
+    {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -19,12 +19,21 @@ package org.deprecated.apachecommons.configurations;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Properties;
-import org.apache.commons.configuration2.AbstractConfiguration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.configuration2.convert.ListDelimiterHandler;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
+import org.learning.utils.properties.CompactKeyMap;
 
 /**
  * <p>
@@ -76,6 +85,13 @@ import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
  * depends on the map passed to the constructor.
  * </p>
  * <p>
+ * For configurations with many long dotted keys, a
+ * {@link CompactKeyMap} can be passed to the constructor. It stores the keys
+ * as paths of shared segments, which reduces the memory used by the keys
+ * considerably; prefix queries via {@link #getKeys(String)} are then answered
+ * by the map itself instead of a separate index of the keys.
+ * </p>
+ * <p>
  * Notes about type safety: For properties with multiple values this implementation
  * creates lists of type {@code Object} and stores them. If a property is assigned
  * another value, the value is added to the list. This can cause problems if the
@@ -90,12 +106,22 @@ import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
  */
 public class MapConfiguration extends AbstractConfiguration implements Cloneable
 {
-    /** The Map decorated by this configuration. */
-    protected Map<String, Object> map;
+    /**
+     * The Map decorated by this configuration. The field is volatile, so that
+     * subclasses can publish a new map to unsynchronized readers by replacing
+     * it.
+     */
+    protected volatile Map<String, Object> map;
 
     /** A flag whether trimming of property values should be disabled.*/
     private boolean trimmingDisabled;
 
+    /** Stores the results of list splitting for string values by key. */
+    private Map<String, SplitValue> splitCache = new ConcurrentHashMap<>();
+
+    /** The sorted index of the keys, created on demand. */
+    private volatile KeyIndex keyIndex;
+
     /**
      * Create a Configuration decorator around the specified Map. The map is
      * used to store the configuration properties, any change will also affect
@@ -160,16 +186,35 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
     public void setTrimmingDisabled(boolean trimmingDisabled)
     {
         this.trimmingDisabled = trimmingDisabled;
+        invalidateSplitCache(null);
+    }
+
+    /**
+     * {@inheritDoc} This implementation also discards the cached results of
+     * list splitting.
+     */
+    @Override
+    public void setListDelimiterHandler(
+            ListDelimiterHandler listDelimiterHandler)
+    {
+        super.setListDelimiterHandler(listDelimiterHandler);
+        invalidateSplitCache(null);
     }
 
+    /**
+     * {@inheritDoc} String values are split by the current
+     * {@code ListDelimiterHandler}. The result is cached, so a value is split
+     * only once; multiple values are returned as an unmodifiable list. The
+     * cache entry is only used while the map contains the very same string,
+     * so direct changes on the map are detected, too.
+     */
     @Override
     protected Object getPropertyInternal(String key)
     {
         Object value = map.get(key);
         if (value instanceof String)
         {
-            Collection<String> list = getListDelimiterHandler().split((String) value, !isTrimmingDisabled());
-            return list.size() > 1 ? list : list.iterator().next();
+            return split(key, (String) value);
         }
         else
         {
@@ -180,13 +225,14 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
     @Override
     protected void addPropertyDirect(String key, Object value)
     {
-        Object previousValue = getProperty(key);
+        Object storedValue = map.get(key);
+        Object previousValue = getPropertyInternal(key);
 
         if (previousValue == null)
         {
             map.put(key, value);
         }
-        else if (previousValue instanceof List)
+        else if (previousValue instanceof List && previousValue == storedValue)
         {
             // the value is added to the existing list
             // Note: This is problematic. See header comment!
@@ -194,13 +240,27 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
         }
         else
         {
-            // the previous value is replaced by a list containing the previous value and the new value
+            // the previous value (which may be the result of list splitting)
+            // is replaced by a list containing the previous values and the new value
             List<Object> list = new ArrayList<>();
-            list.add(previousValue);
+            if (previousValue instanceof Collection)
+            {
+                list.addAll((Collection<?>) previousValue);
+            }
+            else
+            {
+                list.add(previousValue);
+            }
             list.add(value);
 
             map.put(key, list);
         }
+        invalidateSplitCache(key);
+        KeyIndex index = keyIndex;
+        if (index != null)
+        {
+            index.add(key);
+        }
     }
 
     @Override
@@ -219,6 +279,117 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
     protected void clearPropertyDirect(String key)
     {
         map.remove(key);
+        invalidateSplitCache(key);
+        KeyIndex index = keyIndex;
+        if (index != null)
+        {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation prepares the new values and stores
+     * them with a single {@code putAll()} call, so that the map is resized at
+     * most once.
+     */
+    @Override
+    protected void setPropertiesInternal(Map<String, ?> properties)
+    {
+        Map<String, Object> values =
+                new HashMap<>(Utils.mapCapacity(properties.size()));
+        for (Map.Entry<String, ?> e : properties.entrySet())
+        {
+            List<Object> list = new ArrayList<>();
+            for (Object value : getListDelimiterHandler().parse(e.getValue()))
+            {
+                list.add(value);
+            }
+
+            if (list.isEmpty())
+            {
+                map.remove(e.getKey());
+            }
+            else
+            {
+                values.put(e.getKey(), (list.size() > 1) ? list : list.get(0));
+            }
+        }
+        map.putAll(values);
+        invalidateSplitCache(null);
+        KeyIndex index = keyIndex;
+        if (index != null)
+        {
+            for (String key : properties.keySet())
+            {
+                if (values.containsKey(key))
+                {
+                    index.add(key);
+                }
+                else
+                {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation also discards all cached results of
+     * list splitting.
+     */
+    @Override
+    protected void clearInternal()
+    {
+        super.clearInternal();
+        invalidateSplitCache(null);
+        keyIndex = null;
+    }
+
+    /**
+     * Discards the cached result of list splitting for the given key or for
+     * all keys if the key is <b>null</b>. This method has to be called by
+     * subclasses which change the values of this configuration without using
+     * the methods of this class.
+     *
+     * @param key the key or <b>null</b>
+     */
+    protected void invalidateSplitCache(String key)
+    {
+        if (key == null)
+        {
+            splitCache.clear();
+        }
+        else
+        {
+            splitCache.remove(key);
+        }
+    }
+
+    /**
+     * Discards the sorted index of the keys used by {@link #getKeys(String)};
+     * it is created again on the next call. This method has to be called by
+     * subclasses which add or remove keys of the map without using the
+     * methods of this class.
+     */
+    protected void invalidateKeyIndex()
+    {
+        keyIndex = null;
+    }
+
+    /**
+     * Replaces the map of this configuration by the given one and discards
+     * all cached data derived from the former map. Unsynchronized readers see
+     * either the old or the new map. This method must be called with the
+     * write lock held; no events are fired.
+     *
+     * @param newMap the new map
+     */
+    protected void replaceMap(Map<String, Object> newMap)
+    {
+        map = newMap;
+        invalidateSplitCache(null);
+        invalidateKeyIndex();
+        invalidateCaches(null);
     }
 
     @Override
@@ -227,6 +398,97 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
         return map.keySet().iterator();
     }
 
+    /**
+     * {@inheritDoc} This implementation uses a sorted index of the keys, so
+     * the cost of this operation depends on the number of matching keys only
+     * (this also applies to subset configurations, which are based on this
+     * method). The keys are returned in alphabetical order; the iterator does
+     * not support {@code remove()}. The index is created on first use and
+     * then maintained by the update methods of this class. Modifications of
+     * the map which bypass this configuration are not supported by this
+     * method: the index is rebuilt if the size of the map differs from the
+     * number of indexed keys, but other direct changes (e.g. replacing one key
+     * by another) may not be reflected. Subclasses changing the keys of the
+     * map directly have to call {@link #invalidateKeyIndex()}.
+     */
+    @Override
+    public Iterator<String> getKeys(String prefix)
+    {
+        if (isLockFreeReadSupported())
+        {
+            return prefixedKeys(prefix);
+        }
+
+        beginRead(false);
+        try
+        {
+            return prefixedKeys(prefix);
+        }
+        finally
+        {
+            endRead();
+        }
+    }
+
+    /**
+     * Creates an iterator over the keys matching the given prefix based on
+     * the key index. The index is created if necessary. A
+     * {@code CompactKeyMap} is queried directly.
+     *
+     * @param prefix the prefix
+     * @return the iterator
+     */
+    private Iterator<String> prefixedKeys(String prefix)
+    {
+        Map<String, Object> store = map;
+        if (store instanceof CompactKeyMap)
+        {
+            List<String> keys = new ArrayList<>();
+            ((CompactKeyMap<Object>) store).getKeys(prefix)
+                    .forEachRemaining(keys::add);
+            Collections.sort(keys);
+            return Collections.unmodifiableList(keys).iterator();
+        }
+
+        KeyIndex index = keyIndex;
+        if (index == null || !index.isValidFor(store))
+        {
+            index = new KeyIndex(store);
+            keyIndex = index;
+        }
+        return new PrefixedKeysIterator(store, index, prefix);
+    }
+
+    /**
+     * {@inheritDoc} Optimistic reads are only safe if a lookup terminates
+     * even if the map is modified concurrently. This is guaranteed by
+     * concurrent maps and by {@link CompactKeyMap}, whose lookups consume a
+     * segment of the key in every step and probe a bounded table. The JDK
+     * does not give this guarantee for {@code HashMap} or {@code Hashtable}
+     * (e.g. for bins which have been converted to trees), so maps of other
+     * types are always read under the read lock. Caching the result of list
+     * splitting during an optimistic read is harmless, because cache entries
+     * are only used for the string they were computed for.
+     */
+    @Override
+    protected boolean isOptimisticReadSupported()
+    {
+        return map instanceof ConcurrentMap
+                || map instanceof CompactKeyMap;
+    }
+
+    /**
+     * {@inheritDoc} {@code getPropertyInternal()} returns the objects stored
+     * in the map or cached split results, so the raw value of an unchanged
+     * property is always the same object and conversion results can be
+     * cached.
+     */
+    @Override
+    protected boolean isConversionCacheSupported()
+    {
+        return true;
+    }
+
     @Override
     protected int sizeInternal()
     {
@@ -251,6 +513,8 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
             Map<String, Object> clonedMap = null;
            clonedMap = (Map<String, Object>) Utils.clone(map);
             copy.map = clonedMap;
+            copy.splitCache = new ConcurrentHashMap<>();
+            copy.keyIndex = null;
             copy.cloneInterpolator(this);
             return copy;
         }
@@ -279,6 +543,186 @@ public class MapConfiguration extends AbstractConfiguration implements Cloneable
         return map;
     }
 
+    /**
+     * Splits a string value of the given property, using a cached result if
+     * possible.
+     *
+     * @param key the key of the property
+     * @param value the string value
+     * @return the single value or an unmodifiable list of values
+     */
+    private Object split(String key, String value)
+    {
+        ListDelimiterHandler handler = getListDelimiterHandler();
+        boolean trim = !isTrimmingDisabled();
+        SplitValue cached = splitCache.get(key);
+        if (cached != null && cached.isValid(value, handler, trim))
+        {
+            return cached.result;
+        }
+
+        Collection<String> list = handler.split(value, trim);
+        Object result = list.size() > 1
+                ? Collections.unmodifiableList(new ArrayList<Object>(list))
+                : list.iterator().next();
+        splitCache.put(key, new SplitValue(value, handler, trim, result));
+        return result;
+    }
+
+    /**
+     * The cached result of splitting a string value, together with the
+     * parameters it depends on.
+     */
+    private static final class SplitValue
+    {
+        /** The string value which was split. */
+        final String value;
+
+        /** The handler which performed the split. */
+        final ListDelimiterHandler handler;
+
+        /** The trim flag passed to the handler. */
+        final boolean trim;
+
+        /** The single value or the unmodifiable list of values. */
+        final Object result;
+
+        SplitValue(String value, ListDelimiterHandler handler, boolean trim,
+                Object result)
+        {
+            this.value = value;
+            this.handler = handler;
+            this.trim = trim;
+            this.result = result;
+        }
+
+        /**
+         * Checks whether this result can be used for the given parameters.
+         * The string is compared by identity, which is cheap and sufficient
+         * to detect changes of the map.
+         */
+        boolean isValid(String value, ListDelimiterHandler handler,
+                boolean trim)
+        {
+            return this.value == value && this.handler == handler
+                    && this.trim == trim;
+        }
+    }
+
+    /**
+     * A sorted index of the keys of a map. It may contain keys which are no
+     * longer (or not yet) contained in the map, so the map has to be checked,
+     * too.
+     */
+    private static final class KeyIndex
+    {
+        /** The map this index was created for. */
+        final Map<String, Object> source;
+
+        /** The sorted keys. */
+        final NavigableSet<String> keys;
+
+        /** The number of keys. */
+        private final AtomicInteger size;
+
+        KeyIndex(Map<String, Object> source)
+        {
+            this.source = source;
+            keys = new ConcurrentSkipListSet<>(source.keySet());
+            size = new AtomicInteger(keys.size());
+        }
+
+        void add(String key)
+        {
+            if (keys.add(key))
+            {
+                size.incrementAndGet();
+            }
+        }
+
+        void remove(String key)
+        {
+            if (keys.remove(key))
+            {
+                size.decrementAndGet();
+            }
+        }
+
+        /**
+         * Checks whether this index can be used for the given map. If the
+         * number of keys differs, the map has been modified directly.
+         */
+        boolean isValidFor(Map<String, Object> map)
+        {
+            return source == map && map.size() == size.get();
+        }
+    }
+
+    /**
+     * An iterator returning the keys which are equal to a prefix or start with
+     * the prefix followed by a dot. The candidates are obtained from a
+     * {@code KeyIndex}: all keys starting with the prefix and a dot form a
+     * range of the sorted keys.
+     */
+    private static class PrefixedKeysIterator implements Iterator<String>
+    {
+        /** The map containing the properties. */
+        private final Map<String, Object> store;
+
+        /** The iterator over the keys starting with the prefix and a dot. */
+        private final Iterator<String> iterator;
+
+        /** The prefix if it has still to be checked, otherwise <b>null</b>. */
+        private String prefix;
+
+        /** The next matching key or <b>null</b> if it has to be determined. */
+        private String nextElement;
+
+        PrefixedKeysIterator(Map<String, Object> store, KeyIndex index,
+                String prefix)
+        {
+            this.store = store;
+            this.prefix = prefix;
+            // '/' is the character following '.'
+            iterator = index.keys.subSet(prefix + '.', true, prefix + '/', false)
+                    .iterator();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (nextElement == null && prefix != null)
+            {
+                if (store.containsKey(prefix))
+                {
+                    nextElement = prefix;
+                }
+                prefix = null;
+            }
+            while (nextElement == null && iterator.hasNext())
+            {
+                String key = iterator.next();
+                if (store.containsKey(key))
+                {
+                    nextElement = key;
+                }
+            }
+            return nextElement != null;
+        }
+
+        @Override
+        public String next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            String result = nextElement;
+            nextElement = null;
+            return result;
+        }
+    }
+
     /**
      * Converts this object to a String suitable for debugging and logging.
      *
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.configuration2.convert.ListDelimiterHandler;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.deprecated.apachecommons.io.FileBased;
+import org.deprecated.apachecommons.io.temp.DetachedLoadSupport;
+
+/**
+ * <p>
+ * A {@link MapConfiguration} which can be loaded from and saved to a file in
+ * the format of {@code java.util.Properties}.
+ * </p>
+ * <p>
+ * I/O is done through a {@code FileHandler}. This class implements
+ * {@link DetachedLoadSupport}: when data is loaded from a file, a URL or an
+ * input stream, the file handler parses it into a new, detached instance
+ * without holding any lock. Only the map of the loaded instance is then
+ * swapped in with the write lock held, so readers of this configuration are
+ * not blocked while the data is read. The loaded data replaces the former
+ * content of this configuration; no events are fired for the swap.
+ * </p>
+ * <p>
+ * The properties are stored in a {@code ConcurrentHashMap}, so they can be
+ * read optimistically by a {@code Synchronizer} supporting this.
+ * </p>
+ * <p>
+ * Properties with multiple values are written using the current
+ * {@code ListDelimiterHandler}; this is not supported by the default handler,
+ * which does not do any list splitting.
+ * </p>
+ */
+public class PropertiesFileConfiguration extends MapConfiguration
+        implements FileBased, DetachedLoadSupport
+{
+    /**
+     * Creates a new, empty instance of {@code PropertiesFileConfiguration}.
+     */
+    public PropertiesFileConfiguration()
+    {
+        super(new ConcurrentHashMap<String, Object>());
+    }
+
+    /**
+     * {@inheritDoc} This implementation adds the properties read to this
+     * configuration.
+     */
+    @Override
+    public void read(Reader in) throws ConfigurationException, IOException
+    {
+        Properties props = new Properties();
+        props.load(in);
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames())
+        {
+            values.put(key, props.getProperty(key));
+        }
+        addProperties(values);
+    }
+
+    @Override
+    public void write(Writer out) throws ConfigurationException, IOException
+    {
+        Properties props = new Properties();
+        ListDelimiterHandler handler = getListDelimiterHandler();
+        for (Iterator<String> it = getKeys(); it.hasNext();)
+        {
+            String key = it.next();
+            Object value = getProperty(key);
+            try
+            {
+                Object escaped = (value instanceof Collection)
+                        ? handler.escapeList(
+                                new ArrayList<Object>((Collection<?>) value),
+                                ListDelimiterHandler.NOOP_TRANSFORMER)
+                        : handler.escape(value,
+                                ListDelimiterHandler.NOOP_TRANSFORMER);
+                props.setProperty(key, String.valueOf(escaped));
+            }
+            catch (UnsupportedOperationException uoex)
+            {
+                throw new ConfigurationException(
+                        "Cannot write multiple values of property " + key, uoex);
+            }
+        }
+        props.store(out, null);
+    }
+
+    /**
+     * {@inheritDoc} This implementation returns a new, empty
+     * {@code PropertiesFileConfiguration}.
+     */
+    @Override
+    public FileBased createDetachedContent()
+    {
+        return new PropertiesFileConfiguration();
+    }
+
+    /**
+     * {@inheritDoc} This implementation takes over the map of the loaded
+     * configuration.
+     */
+    @Override
+    public void swapContent(FileBased loaded)
+    {
+        replaceMap(((PropertiesFileConfiguration) loaded).map);
+    }
+}
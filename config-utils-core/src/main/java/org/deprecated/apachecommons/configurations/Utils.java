@@ -48,6 +48,17 @@ public static <K, V> Map<K, V> convertToTypedMap(Map<Object, Object> properties,
         .collect(Collectors.toMap(keyMapper, i -> i==null? null: valueMapper.apply(i)));
 }
 
+/**
+ * Returns the initial capacity of a hash map which can hold the given number
+ * of entries without being resized.
+ *
+ * @param expectedSize the expected number of entries
+ * @return the initial capacity
+ */
+public static int mapCapacity(int expectedSize) {
+    return Math.max(16, (int) (expectedSize / .75f) + 1);
+}
+
 /**
  * An internally used helper method for cloning objects. This implementation
  * is not very sophisticated nor efficient. Maybe it can be replaced by an
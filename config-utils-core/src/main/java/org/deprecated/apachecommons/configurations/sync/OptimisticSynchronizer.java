@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.configurations.sync;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * An extension of the {@code Synchronizer} interface for implementations
+ * supporting optimistic reads.
+ * </p>
+ * <p>
+ * An optimistic read does not acquire a lock. The reader obtains a stamp, reads
+ * the data and then validates the stamp. If no write operation has started in
+ * the meantime, the data read is consistent. Otherwise it has to be discarded
+ * and the read has to be repeated under a real read lock:
+ * </p>
+ *
+ * <pre>
+ * long stamp = sync.tryOptimisticRead();
+ * if (stamp != 0)
+ * {
+ *     Object value = ...; // read without lock
+ *     if (sync.validate(stamp))
+ *     {
+ *         return value;
+ *     }
+ * }
+ * sync.beginRead();
+ * try
+ * {
+ *     return ...; // read again
+ * }
+ * finally
+ * {
+ *     sync.endRead();
+ * }
+ * </pre>
+ * <p>
+ * Code executed optimistically may observe the data in an inconsistent state.
+ * It must therefore be free of side effects, and exceptions it throws must be
+ * ignored if the stamp turns out to be invalid.
+ * </p>
+ *
+ * @see SynchronizerSupport#readOptimistically(java.util.function.Supplier)
+ */
+public interface OptimisticSynchronizer extends Synchronizer
+{
+    /**
+     * Returns a stamp for an optimistic read or 0 if an optimistic read is not
+     * possible at the moment, e.g. because a write operation is in progress.
+     *
+     * @return the stamp or 0
+     */
+    long tryOptimisticRead();
+
+    /**
+     * Checks whether no write operation has started since the given stamp was
+     * obtained. If this method returns <b>true</b>, the data read after
+     * obtaining the stamp is consistent.
+     *
+     * @param stamp the stamp returned by {@link #tryOptimisticRead()}
+     * @return a flag whether the optimistic read was successful
+     */
+    boolean validate(long stamp);
+
+    /**
+     * Executes the given read-only operation and returns its result. If the
+     * passed in object is an {@code OptimisticSynchronizer}, the operation is
+     * first executed without a lock; its result is only returned if no write
+     * happened concurrently. Exceptions thrown during an invalidated attempt
+     * are ignored. Otherwise the operation is executed between the given
+     * actions, which have to acquire and release a read lock. This method
+     * accepts any object as synchronizer, so that it can be used with
+     * {@code Synchronizer} interfaces other than the one of this package.
+     *
+     * @param sync the synchronizer (may be <b>null</b>)
+     * @param reader the read operation
+     * @param beginRead the action acquiring a read lock
+     * @param endRead the action releasing the read lock
+     * @param <T> the type of the result
+     * @return the result of the read operation
+     */
+    static <T> T read(Object sync, Supplier<? extends T> reader,
+            Runnable beginRead, Runnable endRead)
+    {
+        if (sync instanceof OptimisticSynchronizer)
+        {
+            OptimisticSynchronizer optimisticSync = (OptimisticSynchronizer) sync;
+            long stamp = optimisticSync.tryOptimisticRead();
+            if (stamp != 0)
+            {
+                try
+                {
+                    T result = reader.get();
+                    if (optimisticSync.validate(stamp))
+                    {
+                        return result;
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    if (optimisticSync.validate(stamp))
+                    {
+                        throw e;
+                    }
+                    // caused by a concurrent write, retry under the lock
+                }
+            }
+        }
+
+        beginRead.run();
+        try
+        {
+            return reader.get();
+        }
+        finally
+        {
+            endRead.run();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.configurations.sync;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <p>
+ * An implementation of {@code Synchronizer} based on the JDK's
+ * {@code StampedLock} class which supports optimistic reads.
+ * </p>
+ * <p>
+ * Readers using the optimistic path (see {@link OptimisticSynchronizer}) do
+ * not write to shared memory at all, so they do not contend with each other.
+ * Only if a write happened during the read, it is repeated under a real read
+ * lock. This makes this class appropriate for configurations which are read
+ * very often and updated rarely.
+ * </p>
+ * <p>
+ * {@code StampedLock} is not reentrant. Because configuration operations are
+ * nested (e.g. {@code setProperty()} calls {@code clearProperty()} and
+ * {@code addProperty()}), this class keeps track of the locks held by the
+ * current thread: nested read or write locks of a thread which already holds
+ * the write lock, and nested read locks of a thread which already holds a read
+ * lock, are granted without touching the {@code StampedLock}. As with
+ * {@link ReadWriteSynchronizer}, a write lock can be downgraded: if a thread
+ * releases the write lock while it still holds read locks obtained afterwards,
+ * the write lock is converted to a read lock. Upgrading a read lock to a write
+ * lock is not supported.
+ * </p>
+ * <p>
+ * This class also implements the {@code Synchronizer} interface of Commons
+ * Configuration, so it can be set on configurations based on that interface.
+ * </p>
+ */
+public class StampedLockSynchronizer implements OptimisticSynchronizer,
+        org.apache.commons.configuration2.sync.Synchronizer
+{
+    /** The lock object used by this Synchronizer. */
+    private final StampedLock lock = new StampedLock();
+
+    /** A view on the read lock which does not require stamps. */
+    private final Lock readLock = lock.asReadLock();
+
+    /** The locks held by the current thread. */
+    private final ThreadLocal<HoldCounts> holdCounts =
+            ThreadLocal.withInitial(HoldCounts::new);
+
+    @Override
+    public long tryOptimisticRead()
+    {
+        return lock.tryOptimisticRead();
+    }
+
+    @Override
+    public boolean validate(long stamp)
+    {
+        return lock.validate(stamp);
+    }
+
+    @Override
+    public void beginRead()
+    {
+        HoldCounts holds = holdCounts.get();
+        if (holds.reads == 0 && holds.writes == 0)
+        {
+            readLock.lock();
+            holds.readLocked = true;
+        }
+        holds.reads++;
+    }
+
+    @Override
+    public void endRead()
+    {
+        HoldCounts holds = holdCounts.get();
+        if (holds.reads == 0)
+        {
+            throw new IllegalMonitorStateException(
+                    "Current thread does not hold a read lock");
+        }
+        if (--holds.reads == 0 && holds.readLocked)
+        {
+            holds.readLocked = false;
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void beginWrite()
+    {
+        HoldCounts holds = holdCounts.get();
+        if (holds.writes == 0)
+        {
+            if (holds.readLocked)
+            {
+                throw new IllegalMonitorStateException(
+                        "Cannot upgrade a read lock to a write lock");
+            }
+            holds.writeStamp = lock.writeLock();
+        }
+        holds.writes++;
+    }
+
+    @Override
+    public void endWrite()
+    {
+        HoldCounts holds = holdCounts.get();
+        if (holds.writes == 0)
+        {
+            throw new IllegalMonitorStateException(
+                    "Current thread does not hold the write lock");
+        }
+        if (--holds.writes == 0)
+        {
+            if (holds.reads > 0)
+            {
+                // downgrade: the nested read locks are still held
+                lock.tryConvertToReadLock(holds.writeStamp);
+                holds.readLocked = true;
+            }
+            else
+            {
+                lock.unlockWrite(holds.writeStamp);
+            }
+        }
+    }
+
+    /**
+     * The locks held by a thread.
+     */
+    private static final class HoldCounts
+    {
+        /** The number of nested read locks. */
+        int reads;
+
+        /** The number of nested write locks. */
+        int writes;
+
+        /** A flag whether the thread holds the read lock of the StampedLock. */
+        boolean readLocked;
+
+        /** The stamp of the write lock if it is held. */
+        long writeStamp;
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.deprecated.apachecommons.configurations.sync;
 
+import java.util.function.Supplier;
+
 /**
  * <p>
  * Definition of an interface for objects that can be associated with a
@@ -100,4 +102,24 @@ public interface SynchronizerSupport
      * @param mode the {@code LockMode}
      */
     void unlock(LockMode mode);
+
+    /**
+     * Executes the given read-only operation on this object and returns its
+     * result. If the {@code Synchronizer} of this object is an
+     * {@link OptimisticSynchronizer}, the operation is first executed without
+     * a lock; its result is only returned if no write happened concurrently.
+     * Otherwise - and for all other {@code Synchronizer} implementations - the
+     * operation is executed while holding a {@link LockMode#READ} lock. As the
+     * operation may see inconsistent data during an optimistic attempt, it must
+     * not have side effects.
+     *
+     * @param reader the read operation
+     * @param <T> the type of the result
+     * @return the result of the read operation
+     */
+    default <T> T readOptimistically(Supplier<? extends T> reader)
+    {
+        return OptimisticSynchronizer.read(getSynchronizer(), reader,
+                () -> lock(LockMode.READ), () -> unlock(LockMode.READ));
+    }
 }
@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * An output stream which replaces a file atomically.
+ * </p>
+ * <p>
+ * The data is written to a temporary file in the directory of the target
+ * file through a {@code FileChannel} with a direct buffer. When the stream is
+ * committed, the channel is optionally forced to the storage device, and the
+ * temporary file is moved onto the target file with
+ * {@code StandardCopyOption.ATOMIC_MOVE}. So readers either see the old or
+ * the new content of the target file, never a partially written one; and
+ * after a crash the target file is intact. If the file system does not
+ * support atomic moves, the file is replaced by a regular move.
+ * </p>
+ * <p>
+ * The stream is committed by {@link #verify()} or by {@link #close()}. If
+ * writing the data has failed, {@link #discard()} should be called instead;
+ * it deletes the temporary file and leaves the target file unchanged.
+ * </p>
+ *
+ * @since 2.0
+ */
+public class AtomicFileOutputStream extends VerifiableOutputStream
+{
+    /** The default size of the write buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** The suffix of temporary files. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The target file. */
+    private final Path target;
+
+    /** The temporary file written to. */
+    private final Path temp;
+
+    /** The channel of the temporary file. */
+    private final FileChannel channel;
+
+    /** The write buffer. */
+    private final ByteBuffer buffer;
+
+    /** A flag whether the channel is forced before the move. */
+    private final boolean force;
+
+    /** A flag whether the stream has been committed or discarded. */
+    private boolean finished;
+
+    /**
+     * Creates a new instance of {@code AtomicFileOutputStream} with a default
+     * buffer size. The temporary file is created immediately.
+     *
+     * @param target the file to be replaced
+     * @param force a flag whether the data is forced to the storage device
+     *        before the target file is replaced
+     * @throws IOException if the temporary file cannot be created
+     */
+    public AtomicFileOutputStream(Path target, boolean force)
+            throws IOException
+    {
+        this(target, force, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new instance of {@code AtomicFileOutputStream}. The temporary
+     * file is created immediately.
+     *
+     * @param target the file to be replaced
+     * @param force a flag whether the data is forced to the storage device
+     *        before the target file is replaced
+     * @param bufferSize the size of the write buffer
+     * @throws IOException if the temporary file cannot be created
+     */
+    public AtomicFileOutputStream(Path target, boolean force, int bufferSize)
+            throws IOException
+    {
+        this.target = target.toAbsolutePath();
+        this.force = force;
+        temp = Files.createTempFile(this.target.getParent(),
+                "." + this.target.getFileName(), TEMP_SUFFIX);
+        try
+        {
+            copyPermissions(this.target, temp);
+            channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        catch (IOException ioex)
+        {
+            Files.deleteIfExists(temp);
+            throw ioex;
+        }
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns the file which is replaced by this stream.
+     *
+     * @return the target file
+     */
+    public Path getTarget()
+    {
+        return target;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        checkOpen();
+        if (!buffer.hasRemaining())
+        {
+            flushBuffer();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException
+    {
+        checkOpen();
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0)
+        {
+            if (!buffer.hasRemaining())
+            {
+                flushBuffer();
+            }
+            int count = Math.min(remaining, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            remaining -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        checkOpen();
+        flushBuffer();
+    }
+
+    /**
+     * {@inheritDoc} This implementation commits the data: it is written to the
+     * temporary file, which then replaces the target file. Calling this method
+     * again has no effect.
+     */
+    @Override
+    public void verify() throws IOException
+    {
+        if (finished)
+        {
+            return;
+        }
+        finished = true;
+
+        try
+        {
+            flushBuffer();
+            if (force)
+            {
+                channel.force(true);
+            }
+            channel.close();
+            try
+            {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException amex)
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException ioex)
+        {
+            deleteTemp();
+            throw ioex;
+        }
+        committed(target);
+    }
+
+    /**
+     * Discards the data written so far. The temporary file is deleted, and the
+     * target file is not changed. Calling this method after the stream has
+     * been committed has no effect.
+     */
+    public void discard()
+    {
+        if (!finished)
+        {
+            finished = true;
+            deleteTemp();
+        }
+    }
+
+    /**
+     * {@inheritDoc} This implementation commits the data if neither
+     * {@link #verify()} nor {@link #discard()} has been called before.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        verify();
+    }
+
+    /**
+     * Notifies this object that the target file has been replaced. This
+     * implementation is empty; derived classes can override it, e.g. to
+     * invalidate caches.
+     *
+     * @param file the target file
+     */
+    protected void committed(Path file)
+    {
+    }
+
+    /**
+     * Writes the content of the buffer to the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void flushBuffer() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Closes the channel and deletes the temporary file ignoring all errors.
+     */
+    private void deleteTemp()
+    {
+        try
+        {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+        catch (IOException ioex)
+        {
+            // ignore; the temporary file is a hidden leftover at worst
+        }
+    }
+
+    /**
+     * Copies the POSIX permissions of the target file to the temporary file,
+     * which is created with restrictive permissions. Nothing happens if the
+     * target file does not exist or the file system does not support POSIX
+     * permissions.
+     *
+     * @param source the target file
+     * @param dest the temporary file
+     * @throws IOException if the permissions cannot be set
+     */
+    private static void copyPermissions(Path source, Path dest)
+            throws IOException
+    {
+        if (Files.exists(source))
+        {
+            try
+            {
+                Files.setPosixFilePermissions(dest,
+                        Files.getPosixFilePermissions(source));
+            }
+            catch (UnsupportedOperationException uoex)
+            {
+                // no POSIX file system
+            }
+        }
+    }
+
+    /**
+     * Checks that the stream has not been committed or discarded yet.
+     *
+     * @throws IOException if the stream is no longer open
+     */
+    private void checkOpen() throws IOException
+    {
+        if (finished)
+        {
+            throw new IOException("Stream is closed: " + target);
+        }
+    }
+}
@@ -17,7 +17,6 @@
 package org.deprecated.apachecommons.io.location;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -26,8 +25,11 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.Path;
+import org.deprecated.apachecommons.io.AtomicFileOutputStream;
 import org.deprecated.apachecommons.io.VerifiableOutputStream;
 import org.learning.core.config.patterns.factory.factories.ConfigurationException;
+import org.learning.utils.io.ContentCache;
 
 
 /**
@@ -39,6 +41,96 @@ import org.learning.core.config.patterns.factory.factories.ConfigurationExceptio
  */
 public class DefaultFileSystem extends FileSystem {
 
+    /**
+     * A flag whether files are replaced atomically when they are saved.
+     */
+    private volatile boolean atomicSave;
+
+    /**
+     * A flag whether saved data is forced to the storage device.
+     */
+    private volatile boolean forceOnSave;
+
+    /**
+     * The chunk size for HTTP uploads; 0 if chunked streaming is disabled.
+     */
+    private volatile int httpChunkSize;
+
+    /**
+     * Returns a flag whether files are replaced atomically when they are
+     * saved.
+     *
+     * @return the atomic save flag
+     */
+    public boolean isAtomicSave() {
+        return atomicSave;
+    }
+
+    /**
+     * Sets a flag whether files are replaced atomically when they are saved.
+     * If enabled, the output streams for files write to a temporary file in
+     * the same directory, which replaces the target file when the stream is
+     * verified or closed (see {@link AtomicFileOutputStream}). So concurrent
+     * readers and file watchers never see a partially written file, and a
+     * crash during a save does not destroy the file. Default is
+     * <b>false</b>.
+     *
+     * @param atomicSave the atomic save flag
+     */
+    public void setAtomicSave(boolean atomicSave) {
+        this.atomicSave = atomicSave;
+    }
+
+    /**
+     * Returns a flag whether saved data is forced to the storage device.
+     *
+     * @return the force flag
+     */
+    public boolean isForceOnSave() {
+        return forceOnSave;
+    }
+
+    /**
+     * Sets a flag whether saved data is forced to the storage device before
+     * the target file is replaced. This makes saves durable, but also
+     * considerably slower. It is only evaluated if atomic saves are enabled.
+     * Default is <b>false</b>.
+     *
+     * @param forceOnSave the force flag
+     */
+    public void setForceOnSave(boolean forceOnSave) {
+        this.forceOnSave = forceOnSave;
+    }
+
+    /**
+     * Returns the chunk size used when saving to HTTP URLs.
+     *
+     * @return the chunk size in bytes; 0 if chunked streaming is disabled
+     */
+    public int getHttpChunkSize() {
+        return httpChunkSize;
+    }
+
+    /**
+     * Sets the chunk size used when saving to HTTP URLs. If a positive value
+     * is set, the data is sent in chunks of this size with chunked transfer
+     * encoding while it is written; otherwise, {@code HttpURLConnection}
+     * buffers the whole body in memory before sending it. The server must
+     * support chunked requests. Default is 0.
+     *
+     * @param httpChunkSize the chunk size in bytes
+     */
+    public void setHttpChunkSize(int httpChunkSize) {
+        this.httpChunkSize = Math.max(0, httpChunkSize);
+    }
+
+    /**
+     * {@inheritDoc} The content of local files and HTTP resources is served
+     * from the shared {@link ContentCache}, so a file loaded by several
+     * handlers is read once as long as it does not change, and reloading an
+     * unchanged HTTP resource only costs a conditional request instead of a
+     * download. The content is still parsed by the caller on each load.
+     */
     @Override
     public InputStream getInputStream(URL url) throws ConfigurationException {
         // throw an exception if the target URL is a directory
@@ -48,7 +140,7 @@ public class DefaultFileSystem extends FileSystem {
         }
 
         try {
-            return url.openStream();
+            return ContentCache.getShared().openStream(url);
         } catch (Exception e) {
             throw new ConfigurationException("Unable to getProperties the configuration from the URL " + url, e);
         }
@@ -72,6 +164,10 @@ public class DefaultFileSystem extends FileSystem {
                 if (connection instanceof HttpURLConnection) {
                     HttpURLConnection conn = (HttpURLConnection) connection;
                     conn.setRequestMethod("PUT");
+                    int chunkSize = getHttpChunkSize();
+                    if (chunkSize > 0) {
+                        conn.setChunkedStreamingMode(chunkSize);
+                    }
                 }
 
                 out = connection.getOutputStream();
@@ -87,17 +183,46 @@ public class DefaultFileSystem extends FileSystem {
         }
     }
 
+    /**
+     * {@inheritDoc} If atomic saves are enabled, the stream returned by this
+     * implementation writes to a temporary file, which replaces the target
+     * file when the stream is verified or closed.
+     */
     @Override
     public OutputStream getOutputStream(File file) throws ConfigurationException {
         try {
             // create the file if necessary
             createPath(file);
+            if (isAtomicSave()) {
+                return createAtomicOutputStream(file);
+            }
             return new FileOutputStream(file);
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             throw new ConfigurationException("Unable to save to file " + file, e);
         }
     }
 
+    /**
+     * Creates a stream which replaces the given file atomically. When the
+     * file has been replaced, its content is removed from the shared
+     * {@link ContentCache}; a file written within the resolution of the file
+     * system's time stamps with an unchanged size could otherwise be served
+     * from the cache.
+     *
+     * @param file the target file
+     * @return the output stream
+     * @throws IOException if the temporary file cannot be created
+     */
+    private OutputStream createAtomicOutputStream(File file) throws IOException {
+        final URL url = FileLocatorUtils.toURL(file);
+        return new AtomicFileOutputStream(file.toPath(), isForceOnSave()) {
+            @Override
+            protected void committed(Path target) {
+                ContentCache.getShared().invalidate(url);
+            }
+        };
+    }
+
     @Override
     public String getPath(File file, URL url, String basePath, String fileName) {
         String path = null;
@@ -221,6 +346,11 @@ public class DefaultFileSystem extends FileSystem {
 
     /**
      * Wraps the output stream so errors can be detected in the HTTP response.
+     * When the stream is closed, the response is read, and an
+     * {@code IOException} is thrown if it reports an error; {@code verify()}
+     * closes the stream and checks the response, too. The response body is
+     * consumed completely, so that the connection can be reused for later
+     * requests to the same server.
      *
      * @author <a
      *     href="http://commons.apache.org/configuration/team-list.html">Commons Configuration team</a>
@@ -228,6 +358,11 @@ public class DefaultFileSystem extends FileSystem {
      */
     private static class HttpOutputStream extends VerifiableOutputStream {
 
+        /**
+         * The size of the buffer for consuming response bodies
+         */
+        private static final int BUFFER_SIZE = 4096;
+
         /**
          * The wrapped OutputStream
          */
@@ -238,6 +373,16 @@ public class DefaultFileSystem extends FileSystem {
          */
         private final HttpURLConnection connection;
 
+        /**
+         * A flag whether the stream has been closed
+         */
+        private boolean closed;
+
+        /**
+         * The response code; -1 as long as no response has been read
+         */
+        private int responseCode = -1;
+
         public HttpOutputStream(OutputStream stream, HttpURLConnection connection) {
             this.stream = stream;
             this.connection = connection;
@@ -265,7 +410,12 @@ public class DefaultFileSystem extends FileSystem {
 
         @Override
         public void close() throws IOException {
-            stream.close();
+            if (!closed) {
+                closed = true;
+                stream.close();
+                responseCode = readResponse();
+                checkResponse();
+            }
         }
 
         @Override
@@ -275,10 +425,45 @@ public class DefaultFileSystem extends FileSystem {
 
         @Override
         public void verify() throws IOException {
-            if (connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
-                throw new IOException("HTTP Error " + connection.getResponseCode()
+            close();
+            checkResponse();
+        }
+
+        /**
+         * Throws an exception if no response has been read or if the
+         * response reports an error.
+         *
+         * @throws IOException if the data has not been saved
+         */
+        private void checkResponse() throws IOException {
+            if (responseCode < 0) {
+                throw new IOException("No HTTP response has been received");
+            }
+            if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new IOException("HTTP Error " + responseCode
                     + " " + connection.getResponseMessage());
             }
         }
+
+        /**
+         * Reads the response of the server and consumes its body.
+         *
+         * @return the response code
+         * @throws IOException if the response cannot be read
+         */
+        private int readResponse() throws IOException {
+            int code = connection.getResponseCode();
+            InputStream body = (code >= HttpURLConnection.HTTP_BAD_REQUEST)
+                ? connection.getErrorStream() : connection.getInputStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    while (in.read(buffer) >= 0) {
+                        // discard the body
+                    }
+                }
+            }
+            return code;
+        }
     }
 }
@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.location;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.deprecated.apachecommons.io.AtomicFileOutputStream;
+import org.learning.core.config.patterns.factory.factories.ConfigurationException;
+import org.learning.utils.io.ContentCache;
+
+/**
+ * <p>
+ * A {@code FileSystem} based on {@code java.nio.file.Path}.
+ * </p>
+ * <p>
+ * All URLs which can be converted to a {@code Path} of an installed file
+ * system provider are accessed through the NIO API: besides <em>file:</em>
+ * URLs, this includes e.g. <em>jar:</em> URLs pointing into a zip file system
+ * which has been opened by {@code FileSystems.newFileSystem()}. So
+ * configurations can be loaded from and saved to in-memory or archive file
+ * systems. Other URLs (e.g. <em>http:</em>) are handled like by
+ * {@link DefaultFileSystem}.
+ * </p>
+ * <p>
+ * If atomic saves are enabled (see {@link #setAtomicSave(boolean)}), files of
+ * the default file system which are larger than a threshold are read through
+ * a memory mapping instead of a stream. The mapping refers to the file at the
+ * time it has been opened; it is not affected by a file that is replaced by
+ * an atomic save. Truncating a mapped file in place, as a non-atomic save
+ * does, would crash readers of the mapping with an {@code InternalError};
+ * therefore files are never mapped if atomic saves are disabled (the
+ * default). Other writers of these files must then replace them atomically,
+ * too.
+ * </p>
+ * <p>
+ * The attributes of files, which are queried to check whether a file exists
+ * or is a directory, are cached for a configurable time. Files written
+ * through this object are removed from this cache and from the shared
+ * {@link ContentCache} used by {@link DefaultFileSystem}.
+ * </p>
+ *
+ * @since 2.0
+ */
+public class NioFileSystem extends DefaultFileSystem {
+
+    /**
+     * The default size from which on files are memory mapped.
+     */
+    public static final long DEFAULT_MEMORY_MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The default time in milliseconds for which file attributes are cached.
+     */
+    public static final long DEFAULT_ATTRIBUTE_CACHE_TIME = 1000;
+
+    /**
+     * The maximum number of cached file attributes.
+     */
+    private static final int MAX_CACHED_ATTRIBUTES = 1024;
+
+    /**
+     * The cached file attributes.
+     */
+    private final ConcurrentMap<Path, CachedAttributes> attributeCache =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The size from which on files are memory mapped.
+     */
+    private volatile long memoryMapThreshold = DEFAULT_MEMORY_MAP_THRESHOLD;
+
+    /**
+     * The time in milliseconds for which file attributes are cached.
+     */
+    private volatile long attributeCacheTime = DEFAULT_ATTRIBUTE_CACHE_TIME;
+
+    /**
+     * Returns the size from which on files are memory mapped.
+     *
+     * @return the memory map threshold in bytes
+     */
+    public long getMemoryMapThreshold() {
+        return memoryMapThreshold;
+    }
+
+    /**
+     * Sets the size from which on files are memory mapped. Smaller files are
+     * read through a stream. {@code Long.MAX_VALUE} disables memory mapping.
+     * The threshold only applies if atomic saves are enabled; otherwise,
+     * files are never mapped.
+     *
+     * @param memoryMapThreshold the memory map threshold in bytes
+     */
+    public void setMemoryMapThreshold(long memoryMapThreshold) {
+        this.memoryMapThreshold = memoryMapThreshold;
+    }
+
+    /**
+     * Returns the time for which file attributes are cached.
+     *
+     * @return the attribute cache time in milliseconds
+     */
+    public long getAttributeCacheTime() {
+        return attributeCacheTime;
+    }
+
+    /**
+     * Sets the time for which file attributes are cached. A value of 0
+     * disables the cache.
+     *
+     * @param attributeCacheTime the attribute cache time in milliseconds
+     */
+    public void setAttributeCacheTime(long attributeCacheTime) {
+        this.attributeCacheTime = attributeCacheTime;
+        if (attributeCacheTime <= 0) {
+            attributeCache.clear();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream(URL url) throws ConfigurationException {
+        Path path = toPath(url);
+        if (path == null) {
+            return super.getInputStream(url);
+        }
+
+        BasicFileAttributes attributes = fetchAttributes(path);
+        if (attributes != null && attributes.isDirectory()) {
+            throw new ConfigurationException("Cannot getProperties a configuration from a directory");
+        }
+
+        try {
+            if (isAtomicSave() && attributes != null
+                && attributes.size() >= getMemoryMapThreshold()
+                && path.getFileSystem() == FileSystems.getDefault()) {
+                return openMapped(path);
+            }
+            return Files.newInputStream(path);
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to getProperties the configuration from the URL " + url, e);
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream(URL url) throws ConfigurationException {
+        Path path = toPath(url);
+        if (path == null) {
+            return super.getOutputStream(url);
+        }
+        return getOutputStream(path);
+    }
+
+    @Override
+    public OutputStream getOutputStream(File file) throws ConfigurationException {
+        return getOutputStream(file.toPath());
+    }
+
+    /**
+     * {@inheritDoc} For URLs which can be converted to a {@code Path} this
+     * implementation checks the existence of the file using the attribute
+     * cache rather than opening a stream.
+     */
+    @Override
+    public URL locateFromURL(String basePath, String fileName) {
+        if (basePath == null) {
+            return super.locateFromURL(basePath, fileName);
+        }
+
+        URL url;
+        try {
+            url = new URL(new URL(basePath), fileName);
+        } catch (MalformedURLException e) {
+            return super.locateFromURL(basePath, fileName);
+        }
+        Path path = toPath(url);
+        if (path == null) {
+            return super.locateFromURL(basePath, fileName);
+        }
+        return (fetchAttributes(path) != null) ? url : null;
+    }
+
+    /**
+     * Removes all cached file attributes.
+     */
+    public void clearAttributeCache() {
+        attributeCache.clear();
+    }
+
+    /**
+     * Converts the given URL to a {@code Path} if there is an installed file
+     * system provider for it.
+     *
+     * @param url the URL
+     * @return the path or <b>null</b> if the URL cannot be converted
+     */
+    protected Path toPath(URL url) {
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException
+            | FileSystemNotFoundException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns an output stream for the given path. Missing parent directories
+     * are created. The cached attributes and the cached content of the path
+     * are dropped when the stream is closed.
+     *
+     * @param path the target path
+     * @return the output stream
+     * @throws ConfigurationException if the stream cannot be opened
+     */
+    private OutputStream getOutputStream(final Path path) throws ConfigurationException {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            if (isAtomicSave()) {
+                return new AtomicFileOutputStream(path, isForceOnSave()) {
+                    @Override
+                    protected void committed(Path target) {
+                        invalidate(path);
+                    }
+                };
+            }
+
+            invalidate(path);
+            return new FilterOutputStream(Files.newOutputStream(path)) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        invalidate(path);
+                    }
+                }
+            };
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to save to file " + path, e);
+        }
+    }
+
+    /**
+     * Removes the given file from the attribute cache and from the shared
+     * content cache, which would otherwise serve the old content to readers
+     * using a {@code DefaultFileSystem} if the file has been replaced within
+     * the resolution of its modification time without changing its size.
+     *
+     * @param path the path
+     */
+    private void invalidate(Path path) {
+        attributeCache.remove(path);
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            try {
+                ContentCache.getShared().invalidate(path.toUri().toURL());
+            } catch (MalformedURLException e) {
+                // no URL, so the content cannot be cached
+            }
+        }
+    }
+
+    /**
+     * Returns the attributes of the given file, using the cache if possible.
+     *
+     * @param path the path
+     * @return the attributes or <b>null</b> if the file does not exist
+     */
+    private BasicFileAttributes fetchAttributes(Path path) {
+        long cacheTime = getAttributeCacheTime();
+        long now = System.nanoTime();
+        if (cacheTime > 0) {
+            CachedAttributes cached = attributeCache.get(path);
+            if (cached != null && now - cached.expires < 0) {
+                return cached.attributes;
+            }
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            attributes = null;
+        } catch (IOException e) {
+            // treat like a missing file, but do not cache
+            return null;
+        }
+
+        if (cacheTime > 0) {
+            if (attributeCache.size() >= MAX_CACHED_ATTRIBUTES) {
+                attributeCache.clear();
+            }
+            attributeCache.put(path, new CachedAttributes(attributes,
+                now + TimeUnit.MILLISECONDS.toNanos(cacheTime)));
+        }
+        return attributes;
+    }
+
+    /**
+     * Opens a stream on a memory mapping of the given file. The size of the
+     * file is determined when it is opened.
+     *
+     * @param path the path
+     * @return the stream
+     * @throws IOException if an I/O error occurs
+     */
+    private static InputStream openMapped(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return Files.newInputStream(path);
+            }
+            MappedByteBuffer buffer =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ByteBufferInputStream(buffer);
+        }
+    }
+
+    /**
+     * The cached attributes of a file.
+     */
+    private static final class CachedAttributes {
+
+        /**
+         * The attributes or <b>null</b> if the file does not exist.
+         */
+        final BasicFileAttributes attributes;
+
+        /**
+         * The time (in nanoseconds) when the entry expires.
+         */
+        final long expires;
+
+        CachedAttributes(BasicFileAttributes attributes, long expires) {
+            this.attributes = attributes;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * An input stream reading from a byte buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        /**
+         * The buffer.
+         */
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,926 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.temp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import org.deprecated.apachecommons.io.AtomicFileOutputStream;
+import org.deprecated.apachecommons.io.location.FileLocatorUtils;
+
+/**
+ * <p>
+ * A binary image of a resolved configuration, which can be used instead of
+ * locating, reading and parsing the configuration files again.
+ * </p>
+ * <p>
+ * An image is a single file holding a table of keys and values together with
+ * stamps of the source files the values have been read from. Each stamp
+ * consists of the URL, the size, the modification time and a SHA-256 hash of
+ * the content of a source. An image is valid as long as all its sources are
+ * unchanged: the size and the modification time of each file are compared;
+ * only if the size is the same, but the modification time differs (e.g.
+ * after a checkout), the hash of the content is computed and compared.
+ * Sources which are not files (e.g. resources in a jar) are always compared
+ * by their hash.
+ * </p>
+ * <p>
+ * The file is memory mapped when it is opened. The keys are stored in an open
+ * addressing hash table, so a lookup reads the mapping directly and costs one
+ * hash computation and usually a single key comparison. Values are decoded
+ * when they are accessed for the first time and then kept, so that repeated
+ * lookups return the same objects. A value is either a {@code String} or an
+ * unmodifiable list of strings.
+ * </p>
+ * <p>
+ * The format starts with a magic number and a version, and it is protected
+ * by a CRC-32 checksum; files with a different version or a wrong checksum
+ * are rejected. Images are written atomically, so concurrently starting
+ * processes never see a partially written image.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and can be used concurrently.
+ * </p>
+ *
+ * @since 2.0
+ */
+public final class ConfigurationImage {
+    /** The magic number at the start of an image ("CFGI"). */
+    private static final int MAGIC = 0x43464749;
+
+    /** The version of the format. */
+    private static final short VERSION = 1;
+
+    /** The algorithm for the hashes of the sources. */
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /** The size of the buffer for hashing sources. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The value count marking a single value which is not a list. */
+    private static final int SCALAR = -1;
+
+    /** The size of the checksum at the end of an image. */
+    private static final int CHECKSUM_SIZE = 8;
+
+    /** The mapped content of the image. */
+    private final ByteBuffer buffer;
+
+    /** The tag of the image. */
+    private final String tag;
+
+    /** The stamps of the sources. */
+    private final List<SourceStamp> sources;
+
+    /** The number of entries. */
+    private final int size;
+
+    /** The size of the hash table, a power of two. */
+    private final int tableSize;
+
+    /** The position of the hash table. */
+    private final int slotsPos;
+
+    /** The position of the entry offsets. */
+    private final int offsetsPos;
+
+    /** The position of the entries. */
+    private final int dataPos;
+
+    /** The decoded keys by entry index. */
+    private final AtomicReferenceArray<String> keys;
+
+    /** The decoded values by entry index. */
+    private final AtomicReferenceArray<Object> values;
+
+    /**
+     * Creates a new instance of {@code ConfigurationImage} and reads the
+     * header of the given buffer.
+     *
+     * @param buffer the content of the image
+     * @throws IOException if the content is not a valid image
+     */
+    private ConfigurationImage(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            int limit = buffer.limit() - CHECKSUM_SIZE;
+            if (limit < 0 || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a configuration image");
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException("Unsupported configuration image version "
+                    + buffer.getShort(4));
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer checked = buffer.duplicate();
+            checked.position(0).limit(limit);
+            crc.update(checked);
+            if (crc.getValue() != buffer.getLong(limit)) {
+                throw new IOException("Configuration image is corrupt");
+            }
+
+            ByteBuffer header = buffer.duplicate();
+            header.position(8);
+            tag = readString(header);
+            int sourceCount = header.getInt();
+            List<SourceStamp> stamps = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                URL url = new URL(readString(header));
+                long fileSize = header.getLong();
+                long lastModified = header.getLong();
+                byte[] hash = new byte[header.getInt()];
+                header.get(hash);
+                stamps.add(new SourceStamp(url, fileSize, lastModified, hash));
+            }
+            sources = Collections.unmodifiableList(stamps);
+
+            size = header.getInt();
+            tableSize = header.getInt();
+            if (size < 0 || tableSize <= size
+                || Integer.bitCount(tableSize) != 1) {
+                throw new IOException("Configuration image is corrupt");
+            }
+            slotsPos = header.position();
+            offsetsPos = slotsPos + 4 * tableSize;
+            dataPos = offsetsPos + 4 * size;
+            if (dataPos > limit) {
+                throw new IOException("Configuration image is corrupt");
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+            | IllegalArgumentException | MalformedURLException e) {
+            throw new IOException("Configuration image is corrupt", e);
+        }
+        keys = new AtomicReferenceArray<>(size);
+        values = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Opens the given image. The file is memory mapped if possible. Whether
+     * the image is up to date is not checked.
+     *
+     * @param file the image file
+     * @return the image
+     * @throws IOException if the file cannot be read or is not a valid image
+     */
+    public static ConfigurationImage open(Path file) throws IOException {
+        try (FileChannel channel =
+                 FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Configuration image is too large");
+            }
+            ByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } catch (UnsupportedOperationException e) {
+                // no mapping for this file system
+                buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            }
+            return new ConfigurationImage(buffer);
+        }
+    }
+
+    /**
+     * Opens the given image if it exists, is valid, has the given tag, and
+     * all its sources are unchanged.
+     *
+     * @param file the image file
+     * @param tag  the expected tag (<b>null</b> for any tag)
+     * @return the image or <b>null</b> if it cannot be used
+     */
+    public static ConfigurationImage openIfFresh(Path file, String tag) {
+        return openIfFresh(file, tag, null);
+    }
+
+    /**
+     * Opens the given image if it exists, is valid, has the given tag, has
+     * been created from the given sources, and all its sources are
+     * unchanged. The sources are the URLs the configuration files currently
+     * resolve to; if a location strategy now finds a different file (e.g. an
+     * override which has been added), the image is not used.
+     *
+     * @param file    the image file
+     * @param tag     the expected tag (<b>null</b> for any tag)
+     * @param sources the expected URLs of the sources in the order of their
+     *                stamps (<b>null</b> for any sources)
+     * @return the image or <b>null</b> if it cannot be used
+     */
+    public static ConfigurationImage openIfFresh(Path file, String tag,
+        List<URL> sources) {
+        try {
+            ConfigurationImage image = open(file);
+            if (tag != null && !tag.equals(image.getTag())) {
+                return null;
+            }
+            if (sources != null && !image.hasSources(sources)) {
+                return null;
+            }
+            return image.isFresh() ? image : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes an image with the given properties. The file is replaced
+     * atomically; missing parent directories are created. The stamps of the
+     * sources should have been obtained before the sources were read, so that
+     * a concurrent modification makes the image stale. <b>null</b> values
+     * are skipped; collections are stored as lists, all other values as
+     * strings.
+     *
+     * @param file       the image file
+     * @param tag        a tag for identifying the image (may be <b>null</b>)
+     * @param properties the properties
+     * @param sources    the stamps of the sources of the properties
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Path file, String tag, Map<String, ?> properties,
+        Collection<SourceStamp> sources) throws IOException {
+        List<byte[]> entryKeys = new ArrayList<>(properties.size());
+        List<Object> entryValues = new ArrayList<>(properties.size());
+        for (Map.Entry<String, ?> e : properties.entrySet()) {
+            if (e.getKey() != null && e.getValue() != null) {
+                entryKeys.add(e.getKey().getBytes(StandardCharsets.UTF_8));
+                entryValues.add(e.getValue());
+            }
+        }
+        int count = entryKeys.size();
+        int tableSize = tableSize(count);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        int[] offsets = new int[count];
+        int[] slots = new int[tableSize];
+        int i = 0;
+        for (Map.Entry<String, ?> e : properties.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                continue;
+            }
+            int hash = e.getKey().hashCode();
+            int slot = spread(hash) & (tableSize - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            slots[slot] = i + 1;
+
+            offsets[i] = dataOut.size();
+            dataOut.writeInt(hash);
+            writeBytes(dataOut, entryKeys.get(i));
+            Object value = entryValues.get(i);
+            if (value instanceof Collection) {
+                Collection<?> col = (Collection<?>) value;
+                dataOut.writeInt(col.size());
+                for (Object v : col) {
+                    writeString(dataOut, v);
+                }
+            } else {
+                dataOut.writeInt(SCALAR);
+                writeString(dataOut, value);
+            }
+            i++;
+        }
+        dataOut.flush();
+
+        ByteArrayOutputStream image = new ByteArrayOutputStream(
+            data.size() + 4 * (tableSize + count) + 1024);
+        DataOutputStream out = new DataOutputStream(image);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        writeBytes(out, ((tag != null) ? tag : "")
+            .getBytes(StandardCharsets.UTF_8));
+        out.writeInt(sources.size());
+        for (SourceStamp stamp : sources) {
+            writeBytes(out, stamp.getURL().toExternalForm()
+                .getBytes(StandardCharsets.UTF_8));
+            out.writeLong(stamp.getSize());
+            out.writeLong(stamp.getLastModified());
+            writeBytes(out, stamp.hash);
+        }
+        out.writeInt(count);
+        out.writeInt(tableSize);
+        for (int slot : slots) {
+            out.writeInt(slot);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        data.writeTo(out);
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        byte[] content = image.toByteArray();
+        crc.update(content, 0, content.length);
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        AtomicFileOutputStream fileOut = new AtomicFileOutputStream(file, false);
+        try {
+            fileOut.write(content);
+            DataOutputStream checksumOut = new DataOutputStream(fileOut);
+            checksumOut.writeLong(crc.getValue());
+            checksumOut.flush();
+            fileOut.verify();
+        } finally {
+            fileOut.discard();
+        }
+    }
+
+    /**
+     * Returns the tag of this image.
+     *
+     * @return the tag (an empty string if none has been set)
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the stamps of the sources of this image.
+     *
+     * @return an unmodifiable list with the source stamps
+     */
+    public List<SourceStamp> getSources() {
+        return sources;
+    }
+
+    /**
+     * Checks whether this image has been created from the given sources in
+     * this order. The URLs are compared by their external form.
+     *
+     * @param urls the URLs of the sources
+     * @return <b>true</b> if the stamps of this image refer to these URLs
+     */
+    public boolean hasSources(List<URL> urls) {
+        if (urls.size() != sources.size()) {
+            return false;
+        }
+        for (int i = 0; i < urls.size(); i++) {
+            if (!sources.get(i).getURL().toExternalForm()
+                .equals(urls.get(i).toExternalForm())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether all sources of this image are unchanged.
+     *
+     * @return <b>true</b> if the image is up to date
+     */
+    public boolean isFresh() {
+        for (SourceStamp stamp : sources) {
+            if (!stamp.isCurrent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of properties stored in this image.
+     *
+     * @return the number of properties
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of the given property.
+     *
+     * @param key the key
+     * @return the value (a {@code String} or a list of strings) or
+     *     <b>null</b> if the key is not contained
+     */
+    public Object get(String key) {
+        int index = indexOf(key);
+        return (index >= 0) ? valueAt(index) : null;
+    }
+
+    /**
+     * Returns an unmodifiable map view of this image. Lookups on the map
+     * operate directly on the image; iteration yields the properties in the
+     * order in which they were written. The map can e.g. be passed to the
+     * constructor of a {@code MapConfiguration}.
+     *
+     * @return a map view of the properties
+     */
+    public Map<String, Object> asMap() {
+        return new ImageMap();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationImage [tag=" + tag + ", size=" + size
+            + ", sources=" + sources + "]";
+    }
+
+    /**
+     * Returns the index of the entry with the given key.
+     *
+     * @param key the key
+     * @return the index or -1 if the key is not contained
+     */
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        String k = (String) key;
+        int hash = k.hashCode();
+        int mask = tableSize - 1;
+        int slot = spread(hash) & mask;
+        for (int probe = 0; probe < tableSize; probe++) {
+            int index = buffer.getInt(slotsPos + 4 * slot) - 1;
+            if (index < 0) {
+                return -1;
+            }
+            int pos = entryPos(index);
+            if (buffer.getInt(pos) == hash && keyEquals(pos + 4, k)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of the entry with the given index.
+     *
+     * @param index the index
+     * @return the position of the entry
+     */
+    private int entryPos(int index) {
+        return dataPos + buffer.getInt(offsetsPos + 4 * index);
+    }
+
+    /**
+     * Compares a key stored at the given position with a string. ASCII keys
+     * are compared without decoding.
+     *
+     * @param pos the position of the stored key
+     * @param key the string
+     * @return a flag whether the key is equal
+     */
+    private boolean keyEquals(int pos, String key) {
+        int length = buffer.getInt(pos);
+        if (length == key.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                byte b = buffer.get(pos + 4 + i);
+                if (b < 0) {
+                    ascii = false;
+                } else if (b != key.charAt(i)) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        } else if (length < key.length()) {
+            // UTF-8 never needs fewer bytes than chars
+            return false;
+        }
+        return key.equals(decode(pos));
+    }
+
+    /**
+     * Returns the key of the entry with the given index.
+     *
+     * @param index the index
+     * @return the key
+     */
+    private String keyAt(int index) {
+        String key = keys.get(index);
+        if (key == null) {
+            key = decode(entryPos(index) + 4);
+            keys.compareAndSet(index, null, key);
+            key = keys.get(index);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the value of the entry with the given index.
+     *
+     * @param index the index
+     * @return the value
+     */
+    private Object valueAt(int index) {
+        Object value = values.get(index);
+        if (value == null) {
+            int pos = entryPos(index) + 4;
+            pos += 4 + buffer.getInt(pos);
+            int count = buffer.getInt(pos);
+            pos += 4;
+            if (count == SCALAR) {
+                value = decode(pos);
+            } else {
+                List<String> list = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    list.add(decode(pos));
+                    pos += 4 + buffer.getInt(pos);
+                }
+                value = Collections.unmodifiableList(list);
+            }
+            values.compareAndSet(index, null, value);
+            value = values.get(index);
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a string stored with its length at the given position.
+     *
+     * @param pos the position
+     * @return the string
+     */
+    private String decode(int pos) {
+        byte[] bytes = new byte[buffer.getInt(pos)];
+        ByteBuffer src = buffer.duplicate();
+        src.position(pos + 4);
+        src.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a string stored with its length at the current position of the
+     * given buffer.
+     *
+     * @param buf the buffer
+     * @return the string
+     */
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a byte array with its length.
+     *
+     * @param out   the output stream
+     * @param bytes the array
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeBytes(DataOutputStream out, byte[] bytes)
+        throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes the string representation of a value with its length.
+     *
+     * @param out   the output stream
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeString(DataOutputStream out, Object value)
+        throws IOException {
+        writeBytes(out, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the size of the hash table for the given number of entries. The
+     * table is at most half full.
+     *
+     * @param count the number of entries
+     * @return the table size
+     */
+    private static int tableSize(int count) {
+        int size = 2;
+        while (size < 2 * count) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Spreads the bits of a hash code, so that the lower bits used for the
+     * table index depend on all bits.
+     *
+     * @param hash the hash code
+     * @return the spread hash
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Creates a digest for hashing sources.
+     *
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the file referenced by a URL if it is a regular file.
+     *
+     * @param url the URL
+     * @return the file or <b>null</b>
+     */
+    private static File toFile(URL url) {
+        File file = FileLocatorUtils.fileFromURL(url);
+        return (file != null && file.isFile()) ? file : null;
+    }
+
+    /**
+     * <p>
+     * The stamp of a source of an image, consisting of its URL, size,
+     * modification time and content hash.
+     * </p>
+     * <p>
+     * The size and the modification time are -1 for sources which are not
+     * files.
+     * </p>
+     */
+    public static final class SourceStamp {
+        /** The URL of the source. */
+        private final URL url;
+
+        /** The size of the file. */
+        private final long size;
+
+        /** The modification time of the file. */
+        private final long lastModified;
+
+        /** The hash of the content. */
+        private final byte[] hash;
+
+        /**
+         * Creates a new instance of {@code SourceStamp}.
+         *
+         * @param url          the URL
+         * @param size         the size
+         * @param lastModified the modification time
+         * @param hash         the hash of the content
+         */
+        private SourceStamp(URL url, long size, long lastModified,
+            byte[] hash) {
+            this.url = url;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /**
+         * Creates a stamp for the given source. The source is read for
+         * computing its hash.
+         *
+         * @param url the URL of the source
+         * @return the stamp
+         * @throws IOException if the source cannot be read
+         */
+        public static SourceStamp of(URL url) throws IOException {
+            Probe probe = probe(url);
+            try (InputStream in = probe.wrap(url.openStream())) {
+                drain(in);
+            }
+            return probe.finish();
+        }
+
+        /**
+         * Starts recording a stamp for the given source. The size and the
+         * modification time are obtained immediately; the hash is computed
+         * from the data read through the stream returned by
+         * {@link Probe#wrap(InputStream)}.
+         *
+         * @param url the URL of the source
+         * @return the probe
+         */
+        static Probe probe(URL url) {
+            return new Probe(url);
+        }
+
+        /**
+         * Returns the URL of the source.
+         *
+         * @return the URL
+         */
+        public URL getURL() {
+            return url;
+        }
+
+        /**
+         * Returns the size of the source file.
+         *
+         * @return the size or -1 if the source is not a file
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the modification time of the source file.
+         *
+         * @return the modification time or -1 if the source is not a file
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Checks whether the source is unchanged. For files, the hash is only
+         * computed if the size is the same, but the modification time
+         * differs.
+         *
+         * @return <b>true</b> if the source is unchanged
+         */
+        public boolean isCurrent() {
+            File file = toFile(url);
+            if (file != null && size >= 0) {
+                if (file.length() != size) {
+                    return false;
+                }
+                if (file.lastModified() == lastModified) {
+                    return true;
+                }
+            } else if ((file != null) != (size >= 0)) {
+                return false;
+            }
+
+            try {
+                return Arrays.equals(hash, of(url).hash);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return url.toExternalForm();
+        }
+
+        /**
+         * Reads the given stream to its end.
+         *
+         * @param in the stream
+         * @throws IOException if an I/O error occurs
+         */
+        private static void drain(InputStream in) throws IOException {
+            byte[] buf = new byte[BUFFER_SIZE];
+            while (in.read(buf) >= 0) {
+                // only the digest is of interest
+            }
+        }
+    }
+
+    /**
+     * An object recording the stamp of a source while it is read.
+     */
+    static final class Probe {
+        /** The URL of the source. */
+        private final URL url;
+
+        /** The size of the file. */
+        private final long size;
+
+        /** The modification time of the file. */
+        private final long lastModified;
+
+        /** The digest for the content. */
+        private final MessageDigest digest = newDigest();
+
+        /**
+         * Creates a new instance of {@code Probe} and obtains the size and
+         * the modification time of the source.
+         *
+         * @param url the URL of the source
+         */
+        private Probe(URL url) {
+            this.url = url;
+            File file = toFile(url);
+            // the modification time first, so that a concurrent change is
+            // detected when the image is validated
+            lastModified = (file != null) ? file.lastModified() : -1;
+            size = (file != null) ? file.length() : -1;
+        }
+
+        /**
+         * Returns a stream which updates the digest with the data read from
+         * the given stream.
+         *
+         * @param in the stream of the source
+         * @return the wrapped stream
+         */
+        InputStream wrap(InputStream in) {
+            return new DigestInputStream(in, digest);
+        }
+
+        /**
+         * Returns the stamp after the source has been read completely.
+         *
+         * @return the stamp
+         */
+        SourceStamp finish() {
+            return new SourceStamp(url, size, lastModified, digest.digest());
+        }
+    }
+
+    /**
+     * The map view of an image.
+     */
+    private final class ImageMap extends AbstractMap<String, Object> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = indexOf(key);
+            return (index >= 0) ? valueAt(index) : null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < size;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = index++;
+                            return new SimpleImmutableEntry<>(keyAt(i),
+                                valueAt(i));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.temp;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * The decoded content of an input stream, used by {@link FileHandler} for
+ * passing the data to be loaded to a reader based {@code FileBased} object.
+ * </p>
+ * <p>
+ * The stream is read completely into a byte array, which is pre-sized if the
+ * size of the data is known. If the data consists of ASCII characters only
+ * and the charset maps these characters to themselves, no charset decoding
+ * is done at all. Otherwise, the data is decoded in a single pass by a
+ * {@code CharsetDecoder} which is reused by the current thread into a
+ * {@code CharBuffer} which is pooled per thread. Malformed input is replaced
+ * like it is done by {@code InputStreamReader}.
+ * </p>
+ * <p>
+ * The pooled buffer is owned by an instance until {@link #release()} is
+ * called; so nested loads on the same thread do not interfere with each
+ * other.
+ * </p>
+ */
+final class DecodedStream {
+    /** The initial buffer size if the size of the data is unknown. */
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** The maximum capacity of a buffer to be kept in the pool. */
+    private static final int MAX_POOLED_CHARS = 1 << 20;
+
+    /** The maximum size of an array. */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The number of ASCII characters. */
+    private static final int ASCII_CHARS = 128;
+
+    /** The pooled character buffer of the current thread. */
+    private static final ThreadLocal<CharBuffer> BUFFER_POOL =
+        new ThreadLocal<>();
+
+    /** The decoders of the current thread by charset. */
+    private static final ThreadLocal<Map<Charset, CharsetDecoder>> DECODERS =
+        ThreadLocal.withInitial(HashMap::new);
+
+    /** Stores whether charsets decode ASCII bytes to the same characters. */
+    private static final Map<Charset, Boolean> ASCII_COMPATIBLE =
+        new ConcurrentHashMap<>();
+
+    /** The reader for the decoded data. */
+    private final Reader reader;
+
+    /** The pooled buffer holding the data or <b>null</b>. */
+    private final CharBuffer buffer;
+
+    /**
+     * Creates a new instance of {@code DecodedStream}.
+     *
+     * @param reader the reader for the decoded data
+     * @param buffer the pooled buffer holding the data or <b>null</b>
+     */
+    private DecodedStream(Reader reader, CharBuffer buffer) {
+        this.reader = reader;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads and decodes the given stream. The stream is not closed.
+     *
+     * @param in       the input stream
+     * @param charset  the charset of the data
+     * @param sizeHint the expected number of bytes or a negative value if it
+     *                 is unknown
+     * @return the decoded content
+     * @throws IOException if an error occurs when reading the stream
+     */
+    static DecodedStream decode(InputStream in, Charset charset,
+        long sizeHint) throws IOException {
+        ByteBuffer bytes = readFully(in, sizeHint);
+        if (isAscii(bytes) && isAsciiCompatible(charset)) {
+            return new DecodedStream(new StringReader(
+                new String(bytes.array(), 0, bytes.limit(),
+                    StandardCharsets.ISO_8859_1)), null);
+        }
+
+        CharsetDecoder decoder = fetchDecoder(charset);
+        CharBuffer chars = acquireBuffer(
+            (int) Math.min(MAX_ARRAY_SIZE,
+                (long) (bytes.limit() * (double) decoder.averageCharsPerByte())
+                    + 1));
+        CoderResult result = decoder.decode(bytes, chars, true);
+        while (result.isOverflow()) {
+            chars = grow(chars);
+            result = decoder.decode(bytes, chars, true);
+        }
+        checkResult(result);
+        result = decoder.flush(chars);
+        while (result.isOverflow()) {
+            chars = grow(chars);
+            result = decoder.flush(chars);
+        }
+        checkResult(result);
+
+        return new DecodedStream(
+            new CharArrayReader(chars.array(), 0, chars.position()), chars);
+    }
+
+    /**
+     * Returns a reader for the decoded data. It must not be used after
+     * {@link #release()} has been called.
+     *
+     * @return the reader
+     */
+    Reader getReader() {
+        return reader;
+    }
+
+    /**
+     * Returns the pooled buffer so that it can be reused by later decode
+     * operations of the current thread.
+     */
+    void release() {
+        if (buffer != null && buffer.capacity() <= MAX_POOLED_CHARS) {
+            BUFFER_POOL.set(buffer);
+        }
+    }
+
+    /**
+     * Reads the whole stream into a byte buffer which is ready for reading.
+     *
+     * @param in       the input stream
+     * @param sizeHint the expected number of bytes or a negative value
+     * @return the buffer with the data
+     * @throws IOException if an error occurs
+     */
+    private static ByteBuffer readFully(InputStream in, long sizeHint)
+        throws IOException {
+        // one more byte, so that the end of the stream is detected without
+        // growing the array
+        byte[] data = new byte[(sizeHint >= 0 && sizeHint < MAX_ARRAY_SIZE)
+            ? (int) sizeHint + 1 : DEFAULT_BUFFER_SIZE];
+        int length = 0;
+        int count;
+        while ((count = in.read(data, length, data.length - length)) >= 0) {
+            length += count;
+            if (length == data.length) {
+                if (length == MAX_ARRAY_SIZE) {
+                    throw new IOException("Stream is too large to be loaded");
+                }
+                byte[] newData = new byte[(int) Math.min(MAX_ARRAY_SIZE,
+                    2L * data.length)];
+                System.arraycopy(data, 0, newData, 0, length);
+                data = newData;
+            }
+        }
+        return ByteBuffer.wrap(data, 0, length);
+    }
+
+    /**
+     * Checks whether the given buffer contains only ASCII characters.
+     *
+     * @param bytes the buffer
+     * @return a flag whether all bytes are ASCII characters
+     */
+    private static boolean isAscii(ByteBuffer bytes) {
+        byte[] data = bytes.array();
+        int length = bytes.limit();
+        for (int i = 0; i < length; i++) {
+            if (data[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the given charset decodes ASCII bytes to the same
+     * characters. This is the case for most charsets, e.g. UTF-8 or
+     * ISO-8859-1, but not for UTF-16.
+     *
+     * @param charset the charset
+     * @return a flag whether the ASCII fast path can be used
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        return ASCII_COMPATIBLE.computeIfAbsent(charset, cs -> {
+            byte[] ascii = new byte[ASCII_CHARS];
+            for (int i = 0; i < ASCII_CHARS; i++) {
+                ascii[i] = (byte) i;
+            }
+            String decoded = new String(ascii, cs);
+            if (decoded.length() != ASCII_CHARS) {
+                return Boolean.FALSE;
+            }
+            for (int i = 0; i < ASCII_CHARS; i++) {
+                if (decoded.charAt(i) != i) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        });
+    }
+
+    /**
+     * Returns the decoder for the given charset, which is cached for the
+     * current thread. The decoder is reset.
+     *
+     * @param charset the charset
+     * @return the decoder
+     */
+    private static CharsetDecoder fetchDecoder(Charset charset) {
+        CharsetDecoder decoder = DECODERS.get().computeIfAbsent(charset,
+            cs -> cs.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        return decoder.reset();
+    }
+
+    /**
+     * Obtains an empty buffer with at least the given capacity. The pooled
+     * buffer of the current thread is used if it is large enough.
+     *
+     * @param capacity the minimum capacity
+     * @return the buffer
+     */
+    private static CharBuffer acquireBuffer(int capacity) {
+        CharBuffer pooled = BUFFER_POOL.get();
+        BUFFER_POOL.remove();
+        if (pooled != null && pooled.capacity() >= capacity) {
+            pooled.clear();
+            return pooled;
+        }
+        return CharBuffer.allocate(Math.max(capacity, DEFAULT_BUFFER_SIZE));
+    }
+
+    /**
+     * Returns a buffer with twice the capacity of the given one and the same
+     * content.
+     *
+     * @param chars the buffer which is full
+     * @return the new buffer
+     */
+    private static CharBuffer grow(CharBuffer chars) {
+        CharBuffer newChars = CharBuffer.allocate(
+            (int) Math.min(MAX_ARRAY_SIZE, 2L * chars.capacity()));
+        chars.flip();
+        newChars.put(chars);
+        return newChars;
+    }
+
+    /**
+     * Throws an exception if the given result reports an error. This does not
+     * happen as long as errors are replaced.
+     *
+     * @param result the result of a decode operation
+     * @throws CharacterCodingException if the result is an error
+     */
+    private static void checkResult(CoderResult result)
+        throws CharacterCodingException {
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.temp;
+
+import org.deprecated.apachecommons.io.FileBased;
+
+/**
+ * <p>
+ * Definition of an interface to be implemented by {@link FileBased} objects
+ * which can be loaded without being locked during I/O.
+ * </p>
+ * <p>
+ * Per default, a {@link FileHandler} obtains the write lock of its content
+ * object and then reads and parses the whole stream; so all readers of the
+ * content are blocked as long as the I/O takes. If the content object
+ * implements this interface, the {@code FileHandler} reads the data into a
+ * detached object created by {@link #createDetachedContent()} without holding
+ * any lock. Only if this was successful, it obtains the write lock and calls
+ * {@link #swapContent(FileBased)}, which should be a cheap operation, e.g.
+ * replacing a reference to the internal data structure. If loading fails, the
+ * content object is not changed at all.
+ * </p>
+ *
+ * @since 2.0
+ */
+public interface DetachedLoadSupport
+{
+    /**
+     * Creates a new, empty object of the same kind as this one, into which
+     * data can be loaded. The object must not share any mutable state with
+     * this object. If this object implements {@link InputStreamSupport},
+     * the detached object should implement it, too.
+     *
+     * @return the detached object to be loaded
+     */
+    FileBased createDetachedContent();
+
+    /**
+     * Takes over the data of a detached object which has been loaded
+     * successfully. This method is called with the write lock held. The
+     * detached object is not used any more afterwards.
+     *
+     * @param loaded the detached object created by
+     *        {@link #createDetachedContent()}
+     */
+    void swapContent(FileBased loaded);
+}
@@ -20,7 +20,6 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
@@ -28,6 +27,7 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -39,8 +39,10 @@ import org.apache.commons.configuration2.sync.NoOpSynchronizer;
 import org.apache.commons.configuration2.sync.Synchronizer;
 import org.apache.commons.configuration2.sync.SynchronizerSupport;
 import org.apache.commons.logging.LogFactory;
+import org.deprecated.apachecommons.io.AtomicFileOutputStream;
 import org.deprecated.apachecommons.io.FileBased;
 import org.deprecated.apachecommons.io.VerifiableOutputStream;
+import org.deprecated.apachecommons.io.temp.FileHandlerEventBus.EventKind;
 import org.deprecated.apachecommons.io.location.FileLocationStrategy;
 import org.deprecated.apachecommons.io.location.FileLocator;
 import org.deprecated.apachecommons.io.location.FileLocator.FileLocatorBuilder;
@@ -116,8 +118,16 @@ import org.deprecated.apachecommons.io.location.FileSystem;
  * sufficient, but because of the possible injection of a {@link FileLocator}
  * object it is not allowed to perform multiple save operations in parallel;
  * therefore, by obtaining a write lock, we are on the safe side.)</li>
+ * <li>{@link DetachedLoadSupport}: In this case data is loaded into a detached
+ * object without holding a lock; the write lock is only obtained for swapping
+ * the loaded data into the {@code FileBased} object.</li>
  * </ul>
  * <p>
+ * Registered {@link FileHandlerListener}s are notified synchronously per
+ * default. By setting a {@link FileHandlerEventBus}, notifications are
+ * delivered asynchronously, and bursts of location changes are coalesced.
+ * </p>
+ * <p>
  * This class is thread-safe.
  * </p>
  *
@@ -178,6 +188,12 @@ public class FileHandler {
     private final List<FileHandlerListener> listeners =
         new CopyOnWriteArrayList<>();
 
+    /**
+     * The queue of the event bus for this handler or <b>null</b> if events
+     * are delivered synchronously.
+     */
+    private volatile FileHandlerEventBus.HandlerQueue eventQueue;
+
     /**
      * Creates a new instance of {@code FileHandler} which is not associated
      * with a {@code FileBased} object and thus does not have a content. Objects
@@ -273,8 +289,24 @@ public class FileHandler {
      * Notifies the registered listeners about a property update.
      */
     private void fireLocationChangedEvent() {
-        for (FileHandlerListener l : listeners) {
-            l.locationChanged(this);
+        fireEvent(EventKind.LOCATION_CHANGED);
+    }
+
+    /**
+     * Notifies the registered listeners about an event. If an event bus is
+     * set, the event is passed to the bus; otherwise the listeners are
+     * notified directly.
+     *
+     * @param kind the kind of the event
+     */
+    private void fireEvent(EventKind kind) {
+        FileHandlerEventBus.HandlerQueue queue = eventQueue;
+        if (queue != null) {
+            queue.post(kind);
+        } else {
+            for (FileHandlerListener l : listeners) {
+                kind.notify(l, this);
+            }
         }
     }
 
@@ -346,6 +378,41 @@ public class FileHandler {
         listeners.remove(l);
     }
 
+    /**
+     * Returns the registered listeners. This method is used by the event bus.
+     *
+     * @return the listeners
+     */
+    List<FileHandlerListener> getFileHandlerListeners() {
+        return listeners;
+    }
+
+    /**
+     * Returns the event bus used for notifying the listeners of this object.
+     *
+     * @return the event bus or <b>null</b> if listeners are notified
+     *     synchronously
+     */
+    public FileHandlerEventBus getEventBus() {
+        FileHandlerEventBus.HandlerQueue queue = eventQueue;
+        return (queue != null) ? queue.getBus() : null;
+    }
+
+    /**
+     * Sets the event bus used for notifying the listeners of this object.
+     * With a bus, listeners are notified asynchronously, and bursts of
+     * location changes are coalesced into a single {@code locationChanged()}
+     * notification (see {@link FileHandlerEventBus}). Per default, no bus is
+     * set, and listeners are notified synchronously by the thread performing
+     * an operation. Events which are already pending at the former bus are
+     * still delivered by it.
+     *
+     * @param bus the event bus or <b>null</b> for synchronous notifications
+     */
+    public void setEventBus(FileHandlerEventBus bus) {
+        eventQueue = (bus != null) ? bus.register(this) : null;
+    }
+
     /**
      * Return the name of the file. If only a URL is defined, the file name
      * is derived from there.
@@ -843,9 +910,20 @@ public class FileHandler {
      * is derived from this object.
      */
     private void injectNullFileLocator() {
-        if (getContent() instanceof FileLocatorAware) {
+        injectNullFileLocator(getContent());
+    }
+
+    /**
+     * Injects a {@code FileLocator} which returns only <b>null</b> values
+     * into the given object if it implements the {@code FileLocatorAware}
+     * interface.
+     *
+     * @param target the object to be initialized
+     */
+    private void injectNullFileLocator(FileBased target) {
+        if (target instanceof FileLocatorAware) {
             FileLocator locator = prepareNullLocatorBuilder().create();
-            ((FileLocatorAware) getContent()).initFileLocator(locator);
+            ((FileLocatorAware) target).initFileLocator(locator);
         }
     }
 
@@ -858,14 +936,28 @@ public class FileHandler {
     private void loadFromReader(Reader in) throws ConfigurationException {
         fireLoadingEvent();
         try {
-            getContent().read(in);
-        } catch (IOException ioex) {
-            throw new ConfigurationException(ioex);
+            readFromReader(getContent(), in);
         } finally {
             fireLoadedEvent();
         }
     }
 
+    /**
+     * Reads the data of the given object from the given reader.
+     *
+     * @param target the object to be loaded
+     * @param in     the reader
+     * @throws ConfigurationException if an error occurs
+     */
+    private static void readFromReader(FileBased target, Reader in)
+        throws ConfigurationException {
+        try {
+            target.read(in);
+        } catch (IOException ioex) {
+            throw new ConfigurationException(ioex);
+        }
+    }
+
     /**
      * Returns the {@code FileBased} object associated with this
      * {@code FileHandler}.
@@ -894,18 +986,14 @@ public class FileHandler {
      * Notifies the registered listeners about the start of a getProperties operation.
      */
     private void fireLoadingEvent() {
-        for (FileHandlerListener l : listeners) {
-            l.loading(this);
-        }
+        fireEvent(EventKind.LOADING);
     }
 
     /**
      * Notifies the registered listeners about a completed getProperties operation.
      */
     private void fireLoadedEvent() {
-        for (FileHandlerListener l : listeners) {
-            l.loaded(this);
-        }
+        fireEvent(EventKind.LOADED);
     }
 
     /**
@@ -1018,18 +1106,14 @@ public class FileHandler {
      * Notifies the registered listeners about the start of a save operation.
      */
     private void fireSavingEvent() {
-        for (FileHandlerListener l : listeners) {
-            l.saving(this);
-        }
+        fireEvent(EventKind.SAVING);
     }
 
     /**
      * Notifies the registered listeners about a completed save operation.
      */
     private void fireSavedEvent() {
-        for (FileHandlerListener l : listeners) {
-            l.saved(this);
-        }
+        fireEvent(EventKind.SAVED);
     }
 
     /**
@@ -1040,14 +1124,25 @@ public class FileHandler {
      * @param url the URL for the locator
      */
     private void injectFileLocator(URL url) {
+        injectFileLocator(getContent(), url);
+    }
+
+    /**
+     * Injects a {@code FileLocator} pointing to the specified URL into the
+     * given object if it implements the {@code FileLocatorAware} interface.
+     *
+     * @param target the object to be initialized
+     * @param url    the URL for the locator
+     */
+    private void injectFileLocator(FileBased target, URL url) {
         if (url == null) {
-            injectNullFileLocator();
+            injectNullFileLocator(target);
         } else {
-            if (getContent() instanceof FileLocatorAware) {
+            if (target instanceof FileLocatorAware) {
                 FileLocator locator =
                     prepareNullLocatorBuilder().sourceURL(url)
                         .create();
-                ((FileLocatorAware) getContent()).initFileLocator(locator);
+                ((FileLocatorAware) target).initFileLocator(locator);
             }
         }
     }
@@ -1140,15 +1235,20 @@ public class FileHandler {
     private void loadFromStream(InputStream in, String encoding, URL url)
         throws ConfigurationException {
         checkContent();
+        if (getContent() instanceof DetachedLoadSupport) {
+            loadDetached(in, encoding, url);
+            return;
+        }
+
         SynchronizerSupport syncSupport = fetchSynchronizerSupport();
         syncSupport.lock(LockMode.WRITE);
         try {
             injectFileLocator(url);
 
             if (getContent() instanceof InputStreamSupport) {
-                loadFromStreamDirectly(in);
+                loadFromStreamDirectly(getContent(), in);
             } else {
-                loadFromTransformedStream(in, encoding);
+                loadFromTransformedStream(in, encoding, url);
             }
         } finally {
             syncSupport.unlock(LockMode.WRITE);
@@ -1156,16 +1256,61 @@ public class FileHandler {
     }
 
     /**
-     * Loads data from an input stream if the associated {@code FileBased}
-     * object implements the {@code InputStreamSupport} interface.
+     * Loads data from an input stream into a detached object if the
+     * associated {@code FileBased} object implements the
+     * {@code DetachedLoadSupport} interface. The stream is read and parsed
+     * without holding a lock; the write lock is only obtained for swapping the
+     * loaded data into the content object.
      *
-     * @param in the input stream
+     * @param in       the input stream
+     * @param encoding the encoding
+     * @param url      the URL of the file to be loaded (if known)
      * @throws ConfigurationException if an error occurs
      */
-    private void loadFromStreamDirectly(InputStream in)
+    private void loadDetached(InputStream in, String encoding, URL url)
         throws ConfigurationException {
+        DetachedLoadSupport detachedSupport =
+            (DetachedLoadSupport) getContent();
+        FileBased detached = detachedSupport.createDetachedContent();
+        fireLoadingEvent();
+        try {
+            injectFileLocator(detached, url);
+            if (detached instanceof InputStreamSupport) {
+                loadFromStreamDirectly(detached, in);
+            } else {
+                DecodedStream decoded = decodeStream(in, encoding, url);
+                try {
+                    readFromReader(detached, decoded.getReader());
+                } finally {
+                    decoded.release();
+                }
+            }
+
+            SynchronizerSupport syncSupport = fetchSynchronizerSupport();
+            syncSupport.lock(LockMode.WRITE);
+            try {
+                injectFileLocator(url);
+                detachedSupport.swapContent(detached);
+            } finally {
+                syncSupport.unlock(LockMode.WRITE);
+            }
+        } finally {
+            fireLoadedEvent();
+        }
+    }
+
+    /**
+     * Loads data from an input stream if the given {@code FileBased} object
+     * implements the {@code InputStreamSupport} interface.
+     *
+     * @param target the object to be loaded
+     * @param in     the input stream
+     * @throws ConfigurationException if an error occurs
+     */
+    private static void loadFromStreamDirectly(FileBased target,
+        InputStream in) throws ConfigurationException {
         try {
-            ((InputStreamSupport) getContent()).read(in);
+            ((InputStreamSupport) target).read(in);
         } catch (IOException e) {
             throw new ConfigurationException(e);
         }
@@ -1177,27 +1322,49 @@ public class FileHandler {
      *
      * @param in       the input stream
      * @param encoding the encoding
+     * @param url      the URL of the file to be loaded (if known)
      * @throws ConfigurationException if an error occurs
      */
-    private void loadFromTransformedStream(InputStream in, String encoding)
-        throws ConfigurationException {
-        Reader reader = null;
-
-        if (encoding != null) {
-            try {
-                reader = new InputStreamReader(in, encoding);
-            } catch (UnsupportedEncodingException e) {
-                throw new ConfigurationException(
-                    "The requested encoding is not supported, try the default encoding.",
-                    e);
-            }
+    private void loadFromTransformedStream(InputStream in, String encoding,
+        URL url) throws ConfigurationException {
+        DecodedStream decoded = decodeStream(in, encoding, url);
+        try {
+            loadFromReader(decoded.getReader());
+        } finally {
+            decoded.release();
         }
+    }
 
-        if (reader == null) {
-            reader = new InputStreamReader(in);
+    /**
+     * Reads and decodes the given input stream. If the URL points to a local
+     * file, its size is used to pre-size the buffers.
+     *
+     * @param in       the input stream
+     * @param encoding the encoding, {@code null} for the default encoding
+     * @param url      the URL of the file to be loaded (if known)
+     * @return the decoded content
+     * @throws ConfigurationException if the encoding is not supported or an
+     *                                I/O error occurs
+     */
+    static DecodedStream decodeStream(InputStream in, String encoding,
+        URL url) throws ConfigurationException {
+        Charset charset;
+        try {
+            charset = (encoding != null) ? Charset.forName(encoding)
+                : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(
+                "The requested encoding is not supported, try the default encoding.",
+                e);
         }
 
-        loadFromReader(reader);
+        File file = (url != null) ? FileLocatorUtils.fileFromURL(url) : null;
+        long sizeHint = (file != null && file.isFile()) ? file.length() : -1;
+        try {
+            return DecodedStream.decode(in, charset, sizeHint);
+        } catch (IOException ioex) {
+            throw new ConfigurationException(ioex);
+        }
     }
 
     /**
@@ -1256,18 +1423,17 @@ public class FileHandler {
      */
     private void save(URL url, FileLocator locator) throws ConfigurationException {
         OutputStream out = null;
+        boolean success = false;
         try {
             out = FileLocatorUtils.obtainFileSystem(locator)
                 .getOutputStream(url);
             saveToStream(out, locator.getEncoding(), url);
-            if (out instanceof VerifiableOutputStream) {
-                try {
-                    ((VerifiableOutputStream) out).verify();
-                } catch (IOException e) {
-                    throw new ConfigurationException(e);
-                }
-            }
+            verifyOutput(out);
+            success = true;
         } finally {
+            if (!success) {
+                discardOutput(out);
+            }
             closeSilent(out);
         }
     }
@@ -1282,19 +1448,57 @@ public class FileHandler {
      */
     private void save(File file, FileLocator locator) throws ConfigurationException {
         OutputStream out = null;
+        boolean success = false;
 
         try {
             out = FileLocatorUtils.obtainFileSystem(locator)
                 .getOutputStream(file);
             saveToStream(out, locator.getEncoding(), file.toURI()
                 .toURL());
+            verifyOutput(out);
+            success = true;
         } catch (MalformedURLException muex) {
             throw new ConfigurationException(muex);
         } finally {
+            if (!success) {
+                discardOutput(out);
+            }
             closeSilent(out);
         }
     }
 
+    /**
+     * Verifies an output stream after data has been written successfully. For
+     * a {@code VerifiableOutputStream} this may commit the data, e.g. replace
+     * the target file atomically.
+     *
+     * @param out the output stream
+     * @throws ConfigurationException if the verification fails
+     */
+    private static void verifyOutput(OutputStream out)
+        throws ConfigurationException {
+        if (out instanceof VerifiableOutputStream) {
+            try {
+                ((VerifiableOutputStream) out).verify();
+            } catch (IOException e) {
+                throw new ConfigurationException(e);
+            }
+        }
+    }
+
+    /**
+     * Discards the data written to an output stream after a failed save
+     * operation if the stream supports this. So a target file which is
+     * replaced atomically is not overwritten with incomplete data.
+     *
+     * @param out the output stream (may be <b>null</b>)
+     */
+    private static void discardOutput(OutputStream out) {
+        if (out instanceof AtomicFileOutputStream) {
+            ((AtomicFileOutputStream) out).discard();
+        }
+    }
+
     /**
      * Internal helper method for saving a file to the given output stream.
      *
@@ -1340,6 +1544,13 @@ public class FileHandler {
             }
 
             saveToWriter(writer);
+            try {
+                // pass data buffered by the writer to the stream before it
+                // is verified
+                writer.flush();
+            } catch (IOException ioex) {
+                throw new ConfigurationException(ioex);
+            }
         } finally {
             syncSupport.unlock(LockMode.WRITE);
         }
@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.temp;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * An object which delivers the events of {@link FileHandler} objects to their
+ * listeners asynchronously.
+ * </p>
+ * <p>
+ * Per default, a {@code FileHandler} notifies its
+ * {@link FileHandlerListener}s on the thread performing the operation; each
+ * call of a setter like {@code setFileName()}, {@code setBasePath()} or
+ * {@code setEncoding()} fires its own {@code locationChanged()} event. If a
+ * bus is set using {@link FileHandler#setEventBus(FileHandlerEventBus)}, the
+ * handler only places its events in a queue, and the listeners are notified
+ * by a task running on the executor of the bus. The events of a single
+ * handler are delivered one after the other in the order they have been
+ * fired; the events of different handlers can be delivered concurrently if
+ * the executor has multiple threads.
+ * </p>
+ * <p>
+ * A location change event is coalesced with a location change event of the
+ * same handler which is still pending at the end of the queue. Because
+ * listeners query the current location from the handler, no information is
+ * lost. Coalescing is best effort: an event whose delivery has already
+ * started cannot absorb later changes, because its listeners may already
+ * have seen the old location. So a burst of setter calls results in a single
+ * notification if it is fired before the delivery task runs, and otherwise
+ * in two notifications, the last of which reports the final location. Events
+ * about load and save operations are never coalesced; note that they are
+ * delivered after the operation may already have completed.
+ * </p>
+ * <p>
+ * Exceptions thrown by listeners are passed to the uncaught exception handler
+ * of the delivering thread; delivery continues with the next listener. A
+ * single bus can be shared by many handlers. After {@link #close()}, events
+ * are delivered synchronously again.
+ * </p>
+ *
+ * @since 2.0
+ */
+public class FileHandlerEventBus implements AutoCloseable {
+    /** The prefix of the names of threads created by the default executor. */
+    private static final String THREAD_NAME = "file-handler-events-";
+
+    /** The maximum number of events delivered by a task in one go. */
+    private static final int MAX_BATCH = 64;
+
+    /** A counter for the names of the default executor threads. */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /** The lock protecting the counters. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The condition signaled when all events have been delivered. */
+    private final Condition idle = lock.newCondition();
+
+    /** The executor for delivering events. */
+    private final Executor executor;
+
+    /** A flag whether the executor has been created by this object. */
+    private final boolean ownExecutor;
+
+    /** The number of events which are queued or being delivered. */
+    private long pending;
+
+    /** The number of events which have been coalesced. */
+    private long coalesced;
+
+    /** A flag whether this bus has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance of {@code FileHandlerEventBus} which delivers
+     * events on a single daemon thread. This thread is shut down by
+     * {@link #close()}.
+     */
+    public FileHandlerEventBus() {
+        this(Executors.newSingleThreadExecutor(r -> {
+            Thread thread =
+                new Thread(r, THREAD_NAME + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Creates a new instance of {@code FileHandlerEventBus} which delivers
+     * events on the given executor. The executor is not shut down by
+     * {@link #close()}.
+     *
+     * @param executor the executor (must not be <b>null</b>)
+     * @throws IllegalArgumentException if the executor is <b>null</b>
+     */
+    public FileHandlerEventBus(Executor executor) {
+        this(executor, false);
+    }
+
+    /**
+     * Creates a new instance of {@code FileHandlerEventBus}.
+     *
+     * @param executor    the executor
+     * @param ownExecutor a flag whether the executor is shut down on close
+     */
+    private FileHandlerEventBus(Executor executor, boolean ownExecutor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null!");
+        }
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Returns the number of events which have not yet been delivered
+     * completely.
+     *
+     * @return the number of pending events
+     */
+    public long getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of location change events which have been coalesced
+     * with a pending event and therefore not been delivered on their own.
+     *
+     * @return the number of coalesced events
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all pending events have been delivered.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return <b>true</b> if all events have been delivered, <b>false</b> if
+     *     the timeout elapsed before
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (pending > 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes this bus. Events which are already pending are still delivered
+     * asynchronously; events fired afterwards are delivered on the firing
+     * thread. If the executor has been created by this object, it is shut
+     * down.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Creates the queue for the events of the given handler. This method is
+     * called by {@link FileHandler} when the bus is set.
+     *
+     * @param handler the handler
+     * @return the queue for the events of this handler
+     */
+    HandlerQueue register(FileHandler handler) {
+        return new HandlerQueue(handler);
+    }
+
+    /**
+     * Updates the counters after events have been added or delivered.
+     *
+     * @param delta          the change of the number of pending events
+     * @param coalescedDelta the change of the number of coalesced events
+     */
+    private void updateCounters(long delta, long coalescedDelta) {
+        lock.lock();
+        try {
+            pending += delta;
+            coalesced += coalescedDelta;
+            if (pending == 0) {
+                idle.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * An enumeration for the kinds of events fired by a {@code FileHandler}.
+     */
+    enum EventKind {
+        /** A load operation starts. */
+        LOADING {
+            @Override
+            void notify(FileHandlerListener listener, FileHandler handler) {
+                listener.loading(handler);
+            }
+        },
+
+        /** A load operation has completed. */
+        LOADED {
+            @Override
+            void notify(FileHandlerListener listener, FileHandler handler) {
+                listener.loaded(handler);
+            }
+        },
+
+        /** A save operation starts. */
+        SAVING {
+            @Override
+            void notify(FileHandlerListener listener, FileHandler handler) {
+                listener.saving(handler);
+            }
+        },
+
+        /** A save operation has completed. */
+        SAVED {
+            @Override
+            void notify(FileHandlerListener listener, FileHandler handler) {
+                listener.saved(handler);
+            }
+        },
+
+        /** The location of the handler has changed. */
+        LOCATION_CHANGED {
+            @Override
+            void notify(FileHandlerListener listener, FileHandler handler) {
+                listener.locationChanged(handler);
+            }
+        };
+
+        /**
+         * Invokes the callback of the given listener for this kind of event.
+         *
+         * @param listener the listener
+         * @param handler  the handler which fired the event
+         */
+        abstract void notify(FileHandlerListener listener, FileHandler handler);
+    }
+
+    /**
+     * The queue of pending events of a single handler. At most one task
+     * delivering the events of a queue is scheduled at any time; this
+     * guarantees that the events of a handler are delivered in order.
+     */
+    final class HandlerQueue implements Runnable {
+        /** The handler whose events are queued. */
+        private final FileHandler handler;
+
+        /** The pending events. */
+        private final ArrayDeque<EventKind> events = new ArrayDeque<>();
+
+        /** A flag whether a task delivering the events is scheduled. */
+        private boolean scheduled;
+
+        /**
+         * Creates a new instance of {@code HandlerQueue}.
+         *
+         * @param handler the handler
+         */
+        private HandlerQueue(FileHandler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Returns the bus this queue belongs to.
+         *
+         * @return the owning bus
+         */
+        FileHandlerEventBus getBus() {
+            return FileHandlerEventBus.this;
+        }
+
+        /**
+         * Adds an event to this queue and makes sure that it is delivered.
+         *
+         * @param kind the kind of the event
+         */
+        void post(EventKind kind) {
+            boolean schedule;
+            synchronized (this) {
+                if (kind == EventKind.LOCATION_CHANGED
+                    && events.peekLast() == EventKind.LOCATION_CHANGED) {
+                    updateCounters(0, 1);
+                    return;
+                }
+                events.addLast(kind);
+                updateCounters(1, 0);
+                schedule = !scheduled;
+                scheduled = true;
+            }
+
+            if (schedule) {
+                if (closed) {
+                    run();
+                } else {
+                    try {
+                        executor.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        run();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Delivers the pending events. If there are many events, a new task
+         * is scheduled after a batch, so that other handlers sharing the
+         * executor are not starved.
+         */
+        @Override
+        public void run() {
+            for (int count = 0; ; count++) {
+                EventKind kind;
+                synchronized (this) {
+                    kind = events.pollFirst();
+                    if (kind == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                boolean delivered = false;
+                try {
+                    deliver(kind);
+                    delivered = true;
+                } finally {
+                    updateCounters(-1, 0);
+                    if (!delivered) {
+                        // an Error escaped from a listener; let later events
+                        // be scheduled again
+                        reschedule();
+                    }
+                }
+
+                if (count >= MAX_BATCH && !closed) {
+                    try {
+                        executor.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // continue on this thread
+                    }
+                }
+            }
+        }
+
+        /**
+         * Called if delivery has been aborted by an {@code Error}. The
+         * remaining events are delivered by a new task; if there are none,
+         * the queue is marked as idle, so that later events are scheduled.
+         */
+        private void reschedule() {
+            synchronized (this) {
+                if (events.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            if (!closed) {
+                try {
+                    executor.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // fall through
+                }
+            }
+            synchronized (this) {
+                scheduled = false;
+            }
+        }
+
+        /**
+         * Notifies all listeners of the handler about an event.
+         *
+         * @param kind the kind of the event
+         */
+        private void deliver(EventKind kind) {
+            for (FileHandlerListener l : handler.getFileHandlerListeners()) {
+                try {
+                    kind.notify(l, handler);
+                } catch (RuntimeException rex) {
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler()
+                        .uncaughtException(current, rex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.temp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.logging.LogFactory;
+import org.deprecated.apachecommons.configurations.AbstractConfiguration;
+import org.deprecated.apachecommons.io.location.FileLocator;
+import org.deprecated.apachecommons.io.location.FileLocatorUtils;
+import org.learning.utils.io.location.LocationExecutors;
+
+/**
+ * <p>
+ * A class for loading multiple configuration files into a single
+ * configuration in one step.
+ * </p>
+ * <p>
+ * A {@link FileHandler} loads a single file into its content object; so
+ * composing a configuration from many fragments requires a load and merge
+ * cycle per file, each of which obtains the write lock of the target
+ * configuration and fires its own events. An instance of this class is
+ * initialized with an ordered list of {@link FileLocator} objects instead.
+ * The files are located, read and parsed concurrently on an executor (per
+ * default the I/O executor of {@link LocationExecutors}), each into an
+ * independent map. The maps are then merged in the order of the list: a
+ * property defined by a later fragment overrides the value of an earlier one.
+ * Finally, the result is written into the target configuration by a single
+ * bulk update, i.e. with a single write lock and a single
+ * {@link AbstractConfiguration#BULK_UPDATE} event. So the time needed for a
+ * load is determined by the largest fragment rather than by the sum of all
+ * fragments.
+ * </p>
+ * <p>
+ * The files are parsed by a {@link FragmentParser}; per default, they are
+ * interpreted as properties files by {@link #PROPERTIES_PARSER}. If one of
+ * the files cannot be loaded, the whole operation fails, and the target
+ * configuration is not changed.
+ * </p>
+ * <p>
+ * Optionally, the merged properties can be stored in a
+ * {@link ConfigurationImage}. As long as none of the files changes, later
+ * loads just map this image instead of reading and parsing the files.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and can be used concurrently.
+ * </p>
+ *
+ * @since 2.0
+ */
+public class MultiFileLoader {
+    /**
+     * A parser reading the content of a fragment in the format of a
+     * properties file. The properties are returned in the order of their
+     * keys.
+     */
+    public static final FragmentParser PROPERTIES_PARSER = reader -> {
+        Properties props = new Properties();
+        props.load(reader);
+        Map<String, Object> result = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            result.put(key, props.getProperty(key));
+        }
+        return result;
+    };
+
+    /** The locators of the fragments in the order of their precedence. */
+    private final List<FileLocator> locators;
+
+    /** The parser for the fragments. */
+    private final FragmentParser parser;
+
+    /** The executor for loading the fragments. */
+    private final Executor executor;
+
+    /**
+     * Creates a new instance of {@code MultiFileLoader} which loads the
+     * given properties files on the default I/O executor.
+     *
+     * @param locators the locators of the files to be loaded (must not be
+     *                 <b>null</b>)
+     * @throws IllegalArgumentException if the list is <b>null</b> or contains
+     *                                  <b>null</b> elements
+     */
+    public MultiFileLoader(List<FileLocator> locators) {
+        this(locators, PROPERTIES_PARSER, LocationExecutors.ioExecutor());
+    }
+
+    /**
+     * Creates a new instance of {@code MultiFileLoader} with the given
+     * parser and executor.
+     *
+     * @param locators the locators of the files to be loaded (must not be
+     *                 <b>null</b>)
+     * @param parser   the parser for the files (must not be <b>null</b>)
+     * @param executor the executor for loading the files (must not be
+     *                 <b>null</b>)
+     * @throws IllegalArgumentException if a parameter is <b>null</b> or the
+     *                                  list contains <b>null</b> elements
+     */
+    public MultiFileLoader(List<FileLocator> locators, FragmentParser parser,
+        Executor executor) {
+        if (locators == null || locators.contains(null)) {
+            throw new IllegalArgumentException(
+                "Locators must not be null and must not contain null elements!");
+        }
+        if (parser == null) {
+            throw new IllegalArgumentException("Parser must not be null!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null!");
+        }
+        this.locators =
+            Collections.unmodifiableList(new ArrayList<>(locators));
+        this.parser = parser;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns an unmodifiable list with the locators of the files loaded by
+     * this object.
+     *
+     * @return the locators in the order of their precedence
+     */
+    public List<FileLocator> getLocators() {
+        return locators;
+    }
+
+    /**
+     * Loads all files and merges them into the given configuration by a
+     * single bulk update. Existing properties of the configuration which are
+     * not defined by any of the files are not changed.
+     *
+     * @param config the target configuration (must not be <b>null</b>)
+     * @throws ConfigurationException if one of the files cannot be loaded
+     * @throws IllegalArgumentException if the configuration is <b>null</b>
+     */
+    public void load(AbstractConfiguration config)
+        throws ConfigurationException {
+        if (config == null) {
+            throw new IllegalArgumentException(
+                "Configuration must not be null!");
+        }
+        config.setProperties(loadMerged());
+    }
+
+    /**
+     * Loads all files and merges them into the given configuration by a
+     * single bulk update using a {@link ConfigurationImage}. If the image
+     * exists and is up to date, its content is used, and the files are not
+     * read at all. Otherwise, the files are loaded, and a new image is
+     * written. Failures when writing the image are logged and otherwise
+     * ignored.
+     *
+     * @param config the target configuration (must not be <b>null</b>)
+     * @param image  the path of the image file (must not be <b>null</b>)
+     * @throws ConfigurationException if one of the files cannot be loaded
+     * @throws IllegalArgumentException if a parameter is <b>null</b>
+     */
+    public void load(AbstractConfiguration config, Path image)
+        throws ConfigurationException {
+        if (config == null) {
+            throw new IllegalArgumentException(
+                "Configuration must not be null!");
+        }
+        config.setProperties(loadMerged(image));
+    }
+
+    /**
+     * Loads all files and returns the merged properties without writing
+     * them into a configuration.
+     *
+     * @return a map with the merged properties
+     * @throws ConfigurationException if one of the files cannot be loaded
+     */
+    public Map<String, Object> loadMerged() throws ConfigurationException {
+        return merge(loadFragments(false));
+    }
+
+    /**
+     * Returns the merged properties using a {@link ConfigurationImage}. If
+     * the image is up to date, a map view of the memory mapped image is
+     * returned. Otherwise, the files are loaded, and the image is written
+     * for the next call. Images are identified by a tag derived from the
+     * locators, so an image written for different files is never used. The
+     * locators are resolved on each call (files listed in a cached directory
+     * listing are found without file system access; names that are not listed
+     * are probed directly); if one of them now refers to a different file
+     * than the one the image has been created from, the image is stale. The
+     * image does not depend on the parser; so a single image file must not be
+     * shared by loaders with different parsers.
+     *
+     * @param image the path of the image file (must not be <b>null</b>)
+     * @return a map with the merged properties
+     * @throws ConfigurationException if one of the files cannot be loaded
+     * @throws IllegalArgumentException if the path is <b>null</b>
+     */
+    public Map<String, Object> loadMerged(Path image)
+        throws ConfigurationException {
+        if (image == null) {
+            throw new IllegalArgumentException("Image must not be null!");
+        }
+        String tag = imageTag();
+        List<URL> sources = locateAll();
+        ConfigurationImage cached = (sources != null)
+            ? ConfigurationImage.openIfFresh(image, tag, sources) : null;
+        if (cached != null) {
+            return cached.asMap();
+        }
+
+        List<Fragment> fragments = loadFragments(true);
+        Map<String, Object> merged = merge(fragments);
+        List<ConfigurationImage.SourceStamp> stamps =
+            new ArrayList<>(fragments.size());
+        for (Fragment fragment : fragments) {
+            stamps.add(fragment.stamp);
+        }
+        try {
+            ConfigurationImage.write(image, tag, merged, stamps);
+        } catch (IOException e) {
+            LogFactory.getLog(MultiFileLoader.class)
+                .warn("Could not write configuration image " + image, e);
+        }
+        return merged;
+    }
+
+    /**
+     * Loads all files concurrently.
+     *
+     * @param stamp a flag whether stamps of the sources are recorded
+     * @return the loaded fragments in the order of the locators
+     * @throws ConfigurationException if one of the files cannot be loaded
+     */
+    private List<Fragment> loadFragments(boolean stamp)
+        throws ConfigurationException {
+        List<CompletableFuture<Fragment>> futures =
+            new ArrayList<>(locators.size());
+        for (FileLocator locator : locators) {
+            futures.add(LocationExecutors.supplyAsync(
+                () -> loadFragment(locator, stamp), executor));
+        }
+
+        List<Fragment> fragments = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<Fragment> future : futures) {
+                fragments.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            if (cause instanceof ConfigurationException) {
+                throw (ConfigurationException) cause;
+            }
+            throw new ConfigurationException(cause);
+        }
+        return fragments;
+    }
+
+    /**
+     * Resolves the URLs of all locators.
+     *
+     * @return the URLs in the order of the locators or <b>null</b> if one of
+     *     the files cannot be located
+     */
+    private List<URL> locateAll() {
+        List<URL> urls = new ArrayList<>(locators.size());
+        for (FileLocator locator : locators) {
+            URL url = FileLocatorUtils.locate(locator);
+            if (url == null) {
+                return null;
+            }
+            urls.add(url);
+        }
+        return urls;
+    }
+
+    /**
+     * Merges the properties of the given fragments in their order.
+     *
+     * @param fragments the fragments
+     * @return a map with the merged properties
+     */
+    private static Map<String, Object> merge(List<Fragment> fragments) {
+        Map<String, Object> merged = new LinkedHashMap<>();
+        for (Fragment fragment : fragments) {
+            merged.putAll(fragment.properties);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the tag identifying the images written by this loader. It
+     * consists of the location data of all locators.
+     *
+     * @return the tag
+     */
+    private String imageTag() {
+        StringBuilder buf = new StringBuilder();
+        for (FileLocator locator : locators) {
+            buf.append(locator.getFileName()).append('|')
+                .append(locator.getBasePath()).append('|')
+                .append(locator.getSourceURL()).append('|')
+                .append(locator.getEncoding()).append('\n');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Locates, reads and parses a single file. This method is called on the
+     * executor.
+     *
+     * @param locator the locator of the file
+     * @param stamp   a flag whether a stamp of the source is recorded
+     * @return the loaded fragment
+     * @throws CompletionException wrapping a {@code ConfigurationException}
+     *                             if the file cannot be loaded
+     */
+    private Fragment loadFragment(FileLocator locator, boolean stamp) {
+        URL url = null;
+        InputStream in = null;
+        try {
+            url = FileLocatorUtils.locateOrThrow(locator);
+            ConfigurationImage.Probe probe =
+                stamp ? ConfigurationImage.SourceStamp.probe(url) : null;
+            in = FileLocatorUtils.obtainFileSystem(locator).getInputStream(url);
+            if (probe != null) {
+                in = probe.wrap(in);
+            }
+            DecodedStream decoded =
+                FileHandler.decodeStream(in, locator.getEncoding(), url);
+            try {
+                Map<String, ?> result = parser.parse(decoded.getReader());
+                return new Fragment((result != null) ? result
+                    : Collections.<String, Object>emptyMap(),
+                    (probe != null) ? probe.finish() : null);
+            } finally {
+                decoded.release();
+            }
+        } catch (ConfigurationException e) {
+            throw new CompletionException(e);
+        } catch (Exception e) {
+            throw new CompletionException(new ConfigurationException(
+                "Unable to load the configuration from the URL "
+                    + ((url != null) ? url : locator), e));
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // the data has been read completely
+                }
+            }
+        }
+    }
+
+    /**
+     * The result of loading a single file.
+     */
+    private static final class Fragment {
+        /** The properties of the file. */
+        final Map<String, ?> properties;
+
+        /** The stamp of the file or <b>null</b> if none has been recorded. */
+        final ConfigurationImage.SourceStamp stamp;
+
+        Fragment(Map<String, ?> properties,
+            ConfigurationImage.SourceStamp stamp) {
+            this.properties = properties;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * <p>
+     * Definition of an interface for parsing the content of a single file
+     * loaded by a {@code MultiFileLoader}.
+     * </p>
+     * <p>
+     * Implementations are called concurrently for different files; so they
+     * must be thread-safe.
+     * </p>
+     */
+    @FunctionalInterface
+    public interface FragmentParser {
+        /**
+         * Parses the given data into a map with properties.
+         *
+         * @param reader the reader for the decoded content of the file
+         * @return a map with the properties defined by the file
+         * @throws IOException if the data cannot be parsed
+         */
+        Map<String, ?> parse(Reader reader) throws IOException;
+    }
+}
@@ -5,8 +5,12 @@ import static org.learning.core.config.fluent.ConfigurationPropertyRetriever.FIN
 
 import co.unruly.config.SecretsManager;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
-import java.io.FileReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
@@ -14,10 +18,15 @@ import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.learning.core.config.fluent.exceptions.ConfigurationPropertyNotFoundException;
+import org.learning.utils.io.ContentCache;
 
 public class Configuration {
 
     public static final Logger logger = LogManager.getLogger();
+    /**
+     * The key of the parsed {@code Properties} form in the {@link ContentCache}.
+     */
+    private static final Object PROPERTIES_PARSER_KEY = new Object();
     private final ConfigurationPropertyRetriever func;
 
     public Configuration() {
@@ -41,18 +50,37 @@ public class Configuration {
         return map::get;
     }
 
+    /**
+     * Returns a retriever for the properties file with the given name. The file is parsed once per version
+     * through the shared {@link ContentCache}; the resulting {@code Properties} object is shared.
+     *
+     * @param s the name of the properties file
+     * @return the retriever for the properties
+     */
     public static ConfigurationPropertyRetriever properties(String s) {
-        Properties properties = new Properties();
+        Properties properties;
 
         try {
-            properties.load(new FileReader(s));
-        } catch (IOException e) {
+            properties = ContentCache.getShared().getParsed(Paths.get(s).toUri().toURL(),
+                PROPERTIES_PARSER_KEY, Configuration::parseProperties);
+        } catch (IOException | UncheckedIOException e) {
             logger.error(e);
+            properties = new Properties();
         }
 
         return properties::getProperty;
     }
 
+    private static Properties parseProperties(byte[] content) {
+        Properties properties = new Properties();
+        try {
+            properties.load(new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+
     public static ConfigurationPropertyRetriever properties(Properties properties) {
         return properties::getProperty;
     }
@@ -20,13 +20,13 @@ package org.learning.core.config.patterns.factory.factories;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Objects;
+import org.learning.utils.io.ContentCache;
 
 
 /**
@@ -185,15 +185,18 @@ public class ConfigurationSource {
 
     /**
      * Returns a new {@code ConfigurationPropertyRetriever} whose input stream is reset to the beginning.
+     * The content of files and HTTP resources is obtained from the shared {@link ContentCache}, so it is
+     * only read again if the file has changed or the server does not answer a conditional request with
+     * {@code 304 Not Modified}. The returned source is parsed again by the configuration that reads it.
      *
      * @return a new {@code ConfigurationPropertyRetriever}
      * @throws IOException if a problem occurred while opening the new input stream
      */
     public ConfigurationSource resetInputStream() throws IOException {
         if (file != null) {
-            return new ConfigurationSource(new FileInputStream(file), file);
+            return new ConfigurationSource(ContentCache.getShared().openStream(file.toURI().toURL()), file);
         } else if (url != null) {
-            return new ConfigurationSource(url.openStream(), url);
+            return new ConfigurationSource(ContentCache.getShared().openStream(url), url);
         } else {
             return new ConfigurationSource(data);
         }
@@ -0,0 +1,371 @@
+package org.learning.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A process wide cache for the content of located configuration files.
+ * <p>
+ * Entries are keyed by the external form of the located URL (for files by the
+ * URI of the normalized absolute path, so that different spellings of a file
+ * URL share an entry) and hold the raw
+ * bytes of the file together with any parsed forms derived from them. Before an
+ * entry is used, the last modification time and the size of the file are
+ * compared with the values recorded when it was read; if they differ, the file
+ * is read again. Entries are evicted in LRU order once the total size of the
+ * cached content exceeds the byte budget.
+ * <p>
+ * Content of {@code http:} and {@code https:} URLs is cached if the server
+ * sends an {@code ETag} or {@code Last-Modified} header. Each access sends a
+ * conditional request with these validators; if the server answers with
+ * {@code 304 Not Modified}, the cached content is used, so a poll for an
+ * unchanged resource costs one round trip and no download. Only callers of
+ * {@link #getParsed(URL, Object, Function)} also skip parsing; the content
+ * returned by {@link #openStream(URL)} is parsed again by its reader.
+ * <p>
+ * Content of other URLs is never cached: {@link #openStream(URL)} simply opens
+ * the URL and {@link #getParsed(URL, Object, Function)} parses it on each call.
+ */
+public class ContentCache {
+
+    /**
+     * The default byte budget of the shared cache.
+     */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private static final String FILE_PROTOCOL = "file";
+
+    private static final String HTTP_PROTOCOL = "http";
+
+    private static final String HTTPS_PROTOCOL = "https";
+
+    private static final String NO_STORE = "no-store";
+
+    private static final ContentCache SHARED = new ContentCache(DEFAULT_MAX_BYTES);
+
+    /**
+     * The cached entries in LRU order. Guarded by itself.
+     */
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long maxBytes;
+
+    /**
+     * The total size of the cached content. Guarded by {@link #entries}.
+     */
+    private long totalBytes;
+
+    /**
+     * Creates a new cache with the given byte budget.
+     *
+     * @param maxBytes the maximum number of content bytes held by this cache
+     */
+    public ContentCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache shared by all consumers in this process.
+     *
+     * @return the shared instance
+     */
+    public static ContentCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Opens a stream to the content of the given URL. For files the content
+     * is served from the cache.
+     *
+     * @param url the located URL
+     * @return a stream with the current content
+     * @throws IOException if the content cannot be read
+     */
+    public InputStream openStream(URL url) throws IOException {
+        Path file = toFile(url);
+        if (file != null) {
+            return new ByteArrayInputStream(entry(file).content);
+        }
+        if (isHttp(url)) {
+            return new ByteArrayInputStream(httpEntry(url).content);
+        }
+        return url.openStream();
+    }
+
+    /**
+     * Returns a parsed form of the content of the given URL. The parser is
+     * invoked once per version of the file; further calls with the same
+     * parser key return the same object until the file changes. Parsed objects
+     * are shared and must therefore not be modified by callers.
+     *
+     * @param url the located URL
+     * @param parserKey the key identifying the parser (and so the parsed form)
+     * @param parser the function parsing the raw content
+     * @param <T> the type of the parsed form
+     * @return the parsed content
+     * @throws IOException if the content cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getParsed(URL url, Object parserKey, Function<byte[], T> parser)
+        throws IOException {
+        Path file = toFile(url);
+        Entry entry;
+        if (file != null) {
+            entry = entry(file);
+        } else if (isHttp(url)) {
+            entry = httpEntry(url);
+        } else {
+            try (InputStream in = url.openStream()) {
+                return parser.apply(toByteArray(in));
+            }
+        }
+
+        return (T) entry.parsed.computeIfAbsent(parserKey,
+            k -> parser.apply(entry.content));
+    }
+
+    /**
+     * Removes the entry for the given URL.
+     *
+     * @param url the URL
+     */
+    public void invalidate(URL url) {
+        Path file = toFile(url);
+        invalidateKey((file != null) ? fileKey(file) : url.toExternalForm());
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    /**
+     * Returns a valid entry for the given file, reading it if there is no
+     * entry or the file has changed since it was read.
+     *
+     * @param file the file
+     * @return the entry
+     * @throws IOException if the file cannot be read
+     */
+    private Entry entry(Path file) throws IOException {
+        String key = fileKey(file);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+            return entry;
+        }
+
+        // attributes are taken before reading, so a concurrent change is detected next time
+        entry = new Entry(Files.readAllBytes(file), lastModified, size);
+        store(key, entry);
+        return entry;
+    }
+
+    /**
+     * Returns a valid entry for the given HTTP URL. If there is an entry, a
+     * conditional request is sent, and the entry is returned if the server
+     * reports that the resource has not been modified. Otherwise the content
+     * is downloaded; it is cached only if the server has sent validators and
+     * does not forbid storing the response. The body of every response is
+     * consumed, so that the connection can be reused.
+     *
+     * @param url the URL
+     * @return the entry
+     * @throws IOException if the content cannot be read or the server reports
+     *         an error
+     */
+    private Entry httpEntry(URL url) throws IOException {
+        String key = url.toExternalForm();
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (cached != null) {
+            if (cached.etag != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached.lastModifiedHeader != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.lastModifiedHeader);
+            }
+        }
+
+        int code = connection.getResponseCode();
+        if (code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                try (InputStream in = error) {
+                    toByteArray(in);
+                }
+            }
+            throw new IOException("HTTP Error " + code + " " + connection.getResponseMessage()
+                + " for " + url);
+        }
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            // consume the (empty) body, so that the connection can be reused
+            try (InputStream in = connection.getInputStream()) {
+                toByteArray(in);
+            }
+            if (cached == null) {
+                // no validators were sent, so there is nothing the answer could refer to
+                throw new IOException("Unexpected 304 Not Modified for an unconditional request to " + url);
+            }
+            return cached;
+        }
+
+        byte[] content;
+        try (InputStream in = connection.getInputStream()) {
+            content = toByteArray(in);
+        }
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        Entry entry = new Entry(content, etag, lastModified);
+        if ((etag != null || lastModified != null)
+            && (cacheControl == null || !cacheControl.toLowerCase(Locale.ROOT).contains(NO_STORE))) {
+            store(key, entry);
+        } else {
+            invalidateKey(key);
+        }
+        return entry;
+    }
+
+    private void store(String key, Entry entry) {
+        if (entry.content.length > maxBytes) {
+            invalidateKey(key);
+            return;
+        }
+
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                totalBytes -= previous.content.length;
+            }
+            totalBytes += entry.content.length;
+
+            Iterator<Entry> it = entries.values().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Entry eldest = it.next();
+                totalBytes -= eldest.content.length;
+                it.remove();
+            }
+        }
+    }
+
+    private void invalidateKey(String key) {
+        synchronized (entries) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                totalBytes -= entry.content.length;
+            }
+        }
+    }
+
+    private static byte[] toByteArray(InputStream in) throws IOException {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        byte[] buff = new byte[4096];
+        int length;
+        while ((length = in.read(buff)) > 0) {
+            contents.write(buff, 0, length);
+        }
+        return contents.toByteArray();
+    }
+
+    private static String fileKey(Path file) {
+        return file.toAbsolutePath().normalize().toUri().toString();
+    }
+
+    private static boolean isHttp(URL url) {
+        return HTTP_PROTOCOL.equalsIgnoreCase(url.getProtocol())
+            || HTTPS_PROTOCOL.equalsIgnoreCase(url.getProtocol());
+    }
+
+    /**
+     * Returns the local file referenced by the given URL or <b>null</b> if it
+     * does not point to a file.
+     *
+     * @param url the URL
+     * @return the file or <b>null</b>
+     */
+    private static Path toFile(URL url) {
+        if (!FILE_PROTOCOL.equalsIgnoreCase(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A cached file or HTTP content.
+     */
+    private static final class Entry {
+
+        final byte[] content;
+
+        final long lastModified;
+
+        final long size;
+
+        /**
+         * The validators sent by an HTTP server; <b>null</b> for files.
+         */
+        final String etag;
+
+        final String lastModifiedHeader;
+
+        /**
+         * The parsed forms of the content per parser key.
+         */
+        final ConcurrentMap<Object, Object> parsed = new ConcurrentHashMap<>();
+
+        Entry(byte[] content, long lastModified, long size) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.etag = null;
+            this.lastModifiedHeader = null;
+        }
+
+        Entry(byte[] content, String etag, String lastModifiedHeader) {
+            this.content = content;
+            this.lastModified = -1;
+            this.size = content.length;
+            this.etag = etag;
+            this.lastModifiedHeader = lastModifiedHeader;
+        }
+    }
+}
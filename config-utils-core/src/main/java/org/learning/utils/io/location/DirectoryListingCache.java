@@ -0,0 +1,309 @@
+package org.learning.utils.io.location;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded cache of directory listings used by file location strategies.
+ * <p>
+ * The content of the parent directory is read once, and subsequent lookups
+ * of files listed in it are answered from memory. Each cached directory is
+ * registered with a {@link WatchService}; create, delete and modify events as
+ * well as overflows drop the listing and its watch, so it is re-read and
+ * registered again on the next lookup.
+ * <p>
+ * Watch events arrive asynchronously (a polling watch service may report a
+ * change only seconds later), so a file created just before a lookup may be
+ * missing from the listing. A name which is not listed is therefore always
+ * checked on the file system before it is reported as absent; only positive
+ * answers are served from memory. This also covers names which match a
+ * listed file on a case insensitive file system.
+ * <p>
+ * If a directory cannot be listed or watched (e.g. because it does not exist
+ * or its file system does not support watching), lookups fall back to direct
+ * file system probes.
+ */
+public class DirectoryListingCache {
+
+    /**
+     * The default maximum number of cached directories.
+     */
+    public static final int DEFAULT_MAX_DIRECTORIES = 256;
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final DirectoryListingCache SHARED =
+        new DirectoryListingCache(DEFAULT_MAX_DIRECTORIES);
+
+    /**
+     * The cached listings in LRU order. Guarded by itself.
+     */
+    private final Map<Path, Listing> listings;
+
+    /**
+     * The watch services, one per file system.
+     */
+    private final ConcurrentMap<FileSystem, WatchService> watchServices =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache holding at most the given number of directories.
+     *
+     * @param maxDirectories the maximum number of cached directories
+     */
+    public DirectoryListingCache(int maxDirectories) {
+        if (maxDirectories <= 0) {
+            throw new IllegalArgumentException("maxDirectories must be positive: " + maxDirectories);
+        }
+        listings = new LinkedHashMap<Path, Listing>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+                if (size() > maxDirectories) {
+                    eldest.getValue().watchKey.cancel();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by the location strategies.
+     *
+     * @return the shared instance
+     */
+    public static DirectoryListingCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Checks whether the given path points to an existing file or directory.
+     *
+     * @param file the path to check
+     * @return <b>true</b> if the path exists
+     */
+    public boolean exists(Path file) {
+        Listing listing = listingFor(file);
+        if (listing == null) {
+            return Files.exists(file);
+        }
+
+        return listing.names.contains(file.getFileName().toString()) || Files.exists(file);
+    }
+
+    /**
+     * Checks whether the given path points to an existing regular file.
+     *
+     * @param file the path to check
+     * @return <b>true</b> if the path is a regular file
+     */
+    public boolean isRegularFile(Path file) {
+        Listing listing = listingFor(file);
+        if (listing == null) {
+            return Files.isRegularFile(file);
+        }
+
+        String name = file.getFileName().toString();
+        if (listing.names.contains(name)) {
+            return listing.regularFiles.computeIfAbsent(name,
+                n -> Files.isRegularFile(listing.directory.resolve(n)));
+        }
+        return Files.isRegularFile(file);
+    }
+
+    /**
+     * Removes the listing of the given directory from the cache.
+     *
+     * @param directory the directory
+     */
+    public void invalidate(Path directory) {
+        Listing listing;
+        synchronized (listings) {
+            listing = listings.remove(directory);
+        }
+        if (listing != null) {
+            listing.watchKey.cancel();
+        }
+    }
+
+    /**
+     * Removes all listings from the cache.
+     */
+    public void clear() {
+        synchronized (listings) {
+            for (Listing listing : listings.values()) {
+                listing.watchKey.cancel();
+            }
+            listings.clear();
+        }
+    }
+
+    /**
+     * Returns the listing of the parent directory of the given file, reading
+     * and registering it if necessary.
+     *
+     * @param file the file
+     * @return the listing or <b>null</b> if the directory cannot be cached
+     */
+    private Listing listingFor(Path file) {
+        if (file.getFileName() == null) {
+            return null;
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null) {
+            return null;
+        }
+
+        Listing listing;
+        synchronized (listings) {
+            listing = listings.get(directory);
+            if (listing != null && !listing.watchKey.isValid()) {
+                // no longer watched, so the listing may be outdated
+                listings.remove(directory);
+                listing = null;
+            }
+        }
+        if (listing == null) {
+            listing = readListing(directory);
+            if (listing != null) {
+                synchronized (listings) {
+                    if (!listing.watchKey.isValid()) {
+                        // the directory changed while it was read
+                        return null;
+                    }
+                    listings.put(directory, listing);
+                }
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Registers the given directory with the watch service and reads its
+     * content. The watch is registered first, so that changes made while the
+     * directory is read cause an invalidation.
+     *
+     * @param directory the directory
+     * @return the listing or <b>null</b> if it cannot be obtained
+     */
+    private Listing readListing(Path directory) {
+        WatchKey watchKey;
+        try {
+            watchKey = directory.register(watchService(directory.getFileSystem()),
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            logger.debug("Cannot watch directory " + directory + ": " + e.getMessage());
+            return null;
+        }
+
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                names.add(entry.getFileName().toString());
+            }
+        } catch (IOException e) {
+            logger.debug("Cannot list directory " + directory + ": " + e.getMessage());
+            watchKey.cancel();
+            return null;
+        }
+        return new Listing(directory, names, watchKey);
+    }
+
+    /**
+     * Returns the watch service for the given file system, creating it and
+     * its polling thread on first access.
+     *
+     * @param fileSystem the file system
+     * @return the watch service
+     * @throws IOException if the watch service cannot be created
+     */
+    private WatchService watchService(FileSystem fileSystem) throws IOException {
+        WatchService service = watchServices.get(fileSystem);
+        if (service == null) {
+            WatchService created = fileSystem.newWatchService();
+            service = watchServices.putIfAbsent(fileSystem, created);
+            if (service == null) {
+                service = created;
+                startWatcher(created);
+            } else {
+                created.close();
+            }
+        }
+        return service;
+    }
+
+    private void startWatcher(WatchService service) {
+        Thread watcher = new Thread(() -> processEvents(service), "directory-listing-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Drops the listings of all directories for which the watch service
+     * reports events.
+     *
+     * @param service the watch service
+     */
+    private void processEvents(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                key.pollEvents();
+                Path directory = (Path) key.watchable();
+                synchronized (listings) {
+                    Listing listing = listings.get(directory);
+                    if (listing != null && listing.watchKey == key) {
+                        listings.remove(directory);
+                    }
+                    // a listing read concurrently sees the invalid key and is not cached
+                    key.cancel();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service closed");
+        }
+    }
+
+    /**
+     * The cached content of a directory.
+     */
+    private static final class Listing {
+
+        final Path directory;
+
+        final Set<String> names;
+
+        /**
+         * Memoized results of regular file checks per name.
+         */
+        final ConcurrentMap<String, Boolean> regularFiles = new ConcurrentHashMap<>();
+
+        final WatchKey watchKey;
+
+        Listing(Path directory, Set<String> names, WatchKey watchKey) {
+            this.directory = directory;
+            this.names = names;
+            this.watchKey = watchKey;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package org.learning.utils.io.location;
 
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 import org.learning.utils.io.location.strategies.FileLocationStrategy;
 
 /**
@@ -10,6 +15,14 @@ import org.learning.utils.io.location.strategies.FileLocationStrategy;
  */
 public class FileLocator {
 
+    /**
+     * The pool of canonical instances used by {@link #intern()}. Entries are
+     * weakly referenced, so locators which are no longer in use can be
+     * garbage collected.
+     */
+    private static final Map<FileLocator, WeakReference<FileLocator>> INTERN_POOL =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
     /**
      * The file name.
      */
@@ -36,6 +49,11 @@ public class FileLocator {
     /*** The file location strategy.*/
     private final FileLocationStrategy locationStrategy;
 
+    /**
+     * The hash code, computed once as all properties are immutable.
+     */
+    private final int hash;
+
     private FileLocator(FileLocatorBuilder builder) {
 
         fileName = builder.fileName;
@@ -44,6 +62,8 @@ public class FileLocator {
         encoding = builder.encoding;
         fileSystem = builder.fileSystem;
         locationStrategy = builder.locationStrategy;
+        hash = Objects.hash(fileName, basePath, sourceURLAsString(), encoding,
+            fileSystem, locationStrategy);
     }
 
 
@@ -71,6 +91,90 @@ public class FileLocator {
         return locationStrategy;
     }
 
+    /**
+     * Returns a canonical representation of this locator. If an equal
+     * {@code FileLocator} has already been interned and is still reachable,
+     * that instance is returned; otherwise this instance is added to the pool
+     * and returned. Interned locators can be compared by identity.
+     *
+     * @return the canonical {@code FileLocator} equal to this one
+     */
+    public FileLocator intern() {
+        synchronized (INTERN_POOL) {
+            WeakReference<FileLocator> ref = INTERN_POOL.get(this);
+            FileLocator canonical = (ref != null) ? ref.get() : null;
+            if (canonical == null) {
+                INTERN_POOL.put(this, new WeakReference<>(this));
+                canonical = this;
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * Returns a hash code for this object. The value is computed at
+     * construction time.
+     *
+     * @return a hash code for this object
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Compares this object with another one. Two instances of
+     * {@code FileLocator} are considered equal if all of their properties
+     * are equal.
+     *
+     * @param obj the object to compare to
+     * @return a flag whether these objects are equal
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FileLocator)) {
+            return false;
+        }
+
+        FileLocator c = (FileLocator) obj;
+        return hash == c.hash
+            && Objects.equals(fileName, c.fileName)
+            && Objects.equals(basePath, c.basePath)
+            && Objects.equals(sourceURLAsString(), c.sourceURLAsString())
+            && Objects.equals(encoding, c.encoding)
+            && Objects.equals(fileSystem, c.fileSystem)
+            && Objects.equals(locationStrategy, c.locationStrategy);
+    }
+
+    /**
+     * Returns a string representation of this object. This string contains the
+     * values of all properties.
+     *
+     * @return a string for this object
+     */
+    @Override
+    public String toString() {
+        return "FileLocator[fileName=" + fileName
+            + ", basePath=" + basePath
+            + ", sourceURL=" + sourceURLAsString()
+            + ", encoding=" + encoding
+            + ", fileSystem=" + fileSystem
+            + ", locationStrategy=" + locationStrategy + "]";
+    }
+
+    /**
+     * Returns the source URL as a string. Result is never null. Comparisons are
+     * done on this string to avoid blocking network calls of {@code URL.equals()}.
+     *
+     * @return the source URL as a string (not null)
+     */
+    private String sourceURLAsString() {
+        return (sourceURL != null) ? sourceURL.toExternalForm() : "";
+    }
+
     public static final class FileLocatorBuilder {
 
         private String fileName;
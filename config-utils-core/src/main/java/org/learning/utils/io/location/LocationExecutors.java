@@ -0,0 +1,151 @@
+package org.learning.utils.io.location;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executors and helpers for asynchronous file location.
+ * <p>
+ * Probes run on a dedicated I/O executor. On JDKs providing virtual threads a
+ * virtual-thread-per-task executor is used, otherwise a cached pool of daemon
+ * threads. Futures created by {@link #supplyAsync(Supplier, Executor)}
+ * interrupt the running probe when they are cancelled or time out.
+ */
+public final class LocationExecutors {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private LocationExecutors() {
+    }
+
+    /**
+     * Returns the shared executor used for location probes.
+     *
+     * @return the I/O executor
+     */
+    public static ExecutorService ioExecutor() {
+        return IoExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Runs the given supplier asynchronously on the passed in executor.
+     * Contrary to {@link CompletableFuture#supplyAsync(Supplier, Executor)}
+     * the worker thread is interrupted if the returned future is completed
+     * before the supplier returns, e.g. by cancellation or a timeout.
+     *
+     * @param supplier the supplier to run
+     * @param executor the executor
+     * @param <T> the type of the result
+     * @return a future for the result of the supplier
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier,
+        Executor executor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, null);
+        result.whenComplete((value, ex) -> {
+            if (ex != null) {
+                task.cancel(true);
+            }
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Completes the passed in future exceptionally with a
+     * {@link TimeoutException} if it is not done within the given time.
+     *
+     * @param future the future to guard
+     * @param timeout the timeout
+     * @param unit the unit of the timeout
+     * @param <T> the type of the result
+     * @return the passed in future
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future,
+        long timeout, TimeUnit unit) {
+        if (future.isDone()) {
+            return future;
+        }
+
+        ScheduledFuture<?> timer = TimeoutSchedulerHolder.SCHEDULER.schedule(
+            () -> future.completeExceptionally(
+                new TimeoutException("Location timed out after " + timeout + " " + unit)),
+            timeout, unit);
+        future.whenComplete((value, ex) -> timer.cancel(false));
+        return future;
+    }
+
+    /**
+     * Creates the I/O executor, preferring virtual threads if the running JDK
+     * supports them.
+     *
+     * @return the new executor
+     */
+    private static ExecutorService createIoExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Virtual threads are not available, using a cached thread pool");
+            return Executors.newCachedThreadPool(daemonThreadFactory("file-locator-io-"));
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Lazy holder for the I/O executor.
+     */
+    private static final class IoExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = createIoExecutor();
+    }
+
+    /**
+     * Lazy holder for the scheduler triggering timeouts.
+     */
+    private static final class TimeoutSchedulerHolder {
+
+        private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+        private static ScheduledThreadPoolExecutor createScheduler() {
+            ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(1, daemonThreadFactory("file-locator-timeout-"));
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+}
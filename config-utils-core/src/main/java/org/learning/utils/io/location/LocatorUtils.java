@@ -14,6 +14,8 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,6 +26,7 @@ import org.learning.utils.io.location.strategies.ClasspathLocationStrategy;
 import org.learning.utils.io.location.strategies.CombinedLocationStrategy;
 import org.learning.utils.io.location.strategies.FileLocationStrategy;
 import org.learning.utils.io.location.strategies.FileSystemLocationStrategy;
+import org.learning.utils.io.location.strategies.LocationMetrics;
 import org.learning.utils.io.location.strategies.ProvidedURLLocationStrategy;
 import org.learning.utils.langext.ObjectUtils;
 import org.learning.utils.langext.PathUtils;
@@ -35,10 +38,16 @@ import org.learning.utils.langext.StringUtils;
 public class LocatorUtils {
 
     public static final Logger logger = LogManager.getLogger();
+    /**
+     * The metrics of the default location strategy. They show how often each
+     * of its sub strategies resolves a file and how long the probes take.
+     */
+    public static final LocationMetrics LOCATION_METRICS = new LocationMetrics();
     /**
      * Constant for the default {@code FileLocationStrategy}. This strategy is
      * used by the {@code locate()} method if the passed in {@code FileLocator}
-     * does not define its own location strategy.
+     * does not define its own location strategy. It is instrumented through
+     * {@link #LOCATION_METRICS}.
      */
     public static final FileLocationStrategy DEFAULT_LOCATION_STRATEGY =
         initDefaultLocationStrategy();
@@ -65,6 +74,8 @@ public class LocatorUtils {
      * define the file, it is returned unchanged. <em>Note:</em> It is not
      * checked whether all components are really consistent!</li>
      * </ul>
+     * Newly created locators are {@linkplain FileLocator#intern() interned},
+     * so repeated derivations of the same location share one instance.
      *
      * @param locator the {@code FileLocator} to be completed
      * @return a {@code FileLocator} with a fully initialized location if
@@ -128,23 +139,54 @@ public class LocatorUtils {
             return null;
         }
 
-        FileLocationStrategy fileLocationStrategy = obtainLocationStrategy(locator);
+        return obtainLocationStrategy(locator).locate(
+            obtainFileSystem(locator), locator);
+    }
 
-        /*return fileLocationStrategy.locate(
-            FileSystems.getDefault(), locator);
-*/
+    /**
+     * Asynchronous counterpart of {@link #locate(FileLocator)}. The location
+     * strategy of the locator is invoked through its
+     * {@link FileLocationStrategy#locateAsync(FileSystem, FileLocator)} method,
+     * so blocking probes run on the I/O executor of {@link LocationExecutors}
+     * rather than on the calling thread. Cancelling the returned future
+     * interrupts the running probe.
+     *
+     * @param locator the {@code FileLocator} to be resolved
+     * @return a future for the URL pointing to the referenced file; it
+     *     completes with <b>null</b> if the file could not be resolved
+     */
+    public static CompletableFuture<URL> locateAsync(FileLocator locator) {
+        if (locator == null) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        return null;
+        return obtainLocationStrategy(locator).locateAsync(
+            obtainFileSystem(locator), locator);
+    }
 
+    /**
+     * Works like {@link #locateAsync(FileLocator)}, but fails the returned
+     * future with a {@link java.util.concurrent.TimeoutException} if the file
+     * cannot be located within the given time. In this case the running probe
+     * is cancelled.
+     *
+     * @param locator the {@code FileLocator} to be resolved
+     * @param timeout the maximum time to wait for the location
+     * @param unit the unit of the timeout
+     * @return a future for the URL pointing to the referenced file
+     */
+    public static CompletableFuture<URL> locateAsync(FileLocator locator,
+        long timeout, TimeUnit unit) {
+        return LocationExecutors.withTimeout(locateAsync(locator), timeout, unit);
     }
 
     /**
      * Creates a fully initialized {@code FileLocator} based on the specified
-     * URL.
+     * URL. The result is interned.
      *
      * @param src the source {@code FileLocator}
      * @param url the URL
-     * @return the fully initialized {@code FileLocator}
+     * @return the canonical fully initialized {@code FileLocator}
      */
     private static FileLocator createFullyInitializedLocatorFromURL(FileLocator src,
         URL url) {
@@ -161,7 +203,7 @@ public class LocatorUtils {
             src.getBasePath())) {
             fileLocatorBuilder.basePath(getBasePath(url));
         }
-        return fileLocatorBuilder.build();
+        return fileLocatorBuilder.build().intern();
     }
 
     /**
@@ -278,7 +320,8 @@ public class LocatorUtils {
     /**
      * Creates the default location strategy. This method creates a combined
      * location strategy as described in the comment of the
-     * {@link #DEFAULT_LOCATION_STRATEGY} member field.
+     * {@link #DEFAULT_LOCATION_STRATEGY} member field and registers it with
+     * {@link #LOCATION_METRICS}.
      *
      * @return the default {@code FileLocationStrategy}
      */
@@ -292,7 +335,8 @@ public class LocatorUtils {
 
                 new ClasspathLocationStrategy()
             };
-        return new CombinedLocationStrategy(Arrays.asList(subStrategies));
+        return LOCATION_METRICS.instrument(
+            new CombinedLocationStrategy(Arrays.asList(subStrategies)));
     }
 
     public static void main(String[] args) {
@@ -18,9 +18,9 @@ package org.learning.utils.io.location.strategies;
 
 import java.net.URL;
 import java.nio.file.FileSystem;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import org.learning.utils.io.location.DirectoryListingCache;
 import org.learning.utils.io.location.FileLocator;
 import org.learning.utils.io.location.LocatorUtils;
 import org.learning.utils.langext.StringUtils;
@@ -46,6 +46,7 @@ public class AbsoluteNameLocationStrategy implements FileLocationStrategy
      * {@inheritDoc} This implementation constructs a {@code File} object from
      * the locator's file name (if defined). If this results in an absolute file
      * name pointing to an existing file, the corresponding URL is returned.
+     * Existence is checked through the shared {@link DirectoryListingCache}.
      */
     @Override
     public URL locate(FileSystem fileSystem, FileLocator locator)
@@ -53,7 +54,8 @@ public class AbsoluteNameLocationStrategy implements FileLocationStrategy
         if (StringUtils.isNotEmpty(locator.getFileName()))
         {
             Path file = Paths.get(locator.getFileName());
-            if (file.isAbsolute() && Files.exists(file))
+            if (file.isAbsolute()
+                    && DirectoryListingCache.getShared().exists(file))
             {
                 return LocatorUtils.convertPathToURL(file);
             }
@@ -18,8 +18,8 @@ package org.learning.utils.io.location.strategies;
 
 import java.net.URL;
 import java.nio.file.FileSystem;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import org.learning.utils.io.location.DirectoryListingCache;
 import org.learning.utils.io.location.FileLocator;
 import org.learning.utils.io.location.LocatorUtils;
 import org.learning.utils.langext.StringUtils;
@@ -46,7 +46,8 @@ public class BasePathLocationStrategy implements FileLocationStrategy
      * {@inheritDoc} This implementation uses utility methods from
      * {@code FileLocatorUtils} to generate a {@code File} from the locator's
      * base path and file name. If this {@code File} exists, its URL is
-     * returned.
+     * returned. The check is answered by the shared
+     * {@link DirectoryListingCache}.
      */
     @Override
     public URL locate(FileSystem fileSystem, FileLocator locator)
@@ -56,7 +57,7 @@ public class BasePathLocationStrategy implements FileLocationStrategy
             Path file =
                     LocatorUtils.constructFilePath(locator.getBasePath(),
                             locator.getFileName());
-            if (Files.isRegularFile(file))
+            if (DirectoryListingCache.getShared().isRegularFile(file))
             {
                 return LocatorUtils.convertPathToURL(file);
             }
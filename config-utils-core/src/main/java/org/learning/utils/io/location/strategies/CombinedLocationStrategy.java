@@ -21,6 +21,9 @@ import java.nio.file.FileSystem;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.learning.utils.io.location.FileLocator;
 
 
@@ -113,4 +116,64 @@ public class CombinedLocationStrategy implements FileLocationStrategy
 
         return null;
     }
+
+    /**
+     * {@inheritDoc} This implementation queries the sub strategies one after
+     * the other through their own {@code locateAsync()} methods, so that sub
+     * strategies with a specific asynchronous implementation are honored.
+     * Cancelling the returned future stops the chain and cancels the
+     * currently running probe.
+     */
+    @Override
+    public CompletableFuture<URL> locateAsync(FileSystem fileSystem,
+            FileLocator locator, Executor executor)
+    {
+        CompletableFuture<URL> result = new CompletableFuture<>();
+        locateNext(getSubStrategies().iterator(), fileSystem, locator,
+                executor, result);
+        return result;
+    }
+
+    /**
+     * Asks the next sub strategy of the given iterator to locate the file and
+     * continues with the following one if it fails.
+     *
+     * @param subs the iterator over the remaining sub strategies
+     * @param fileSystem the {@code FileSystem}
+     * @param locator the {@code FileLocator}
+     * @param executor the executor for blocking probes
+     * @param result the future to be completed
+     */
+    private static void locateNext(Iterator<FileLocationStrategy> subs,
+            FileSystem fileSystem, FileLocator locator, Executor executor,
+            CompletableFuture<URL> result)
+    {
+        if (result.isDone())
+        {
+            return;
+        }
+        if (!subs.hasNext())
+        {
+            result.complete(null);
+            return;
+        }
+
+        CompletableFuture<URL> probe =
+                subs.next().locateAsync(fileSystem, locator, executor);
+        result.whenComplete((url, ex) -> probe.cancel(true));
+        probe.whenComplete((url, ex) -> {
+            if (ex != null)
+            {
+                result.completeExceptionally(ex);
+            }
+            else if (url != null)
+            {
+                result.complete(url);
+            }
+            else
+            {
+                locateNext(subs, fileSystem, locator, executor, result);
+            }
+        });
+    }
 }
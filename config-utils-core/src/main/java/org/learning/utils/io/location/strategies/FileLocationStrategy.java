@@ -2,7 +2,10 @@ package org.learning.utils.io.location.strategies;
 
 import java.net.URL;
 import java.nio.file.FileSystem;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.learning.utils.io.location.FileLocator;
+import org.learning.utils.io.location.LocationExecutors;
 
 public interface FileLocationStrategy
 {
@@ -23,4 +26,37 @@ public interface FileLocationStrategy
      *         <b>null</b> if the file could not be resolved
      */
     URL locate(FileSystem fileSystem, FileLocator locator);
+
+    /**
+     * Asynchronous counterpart of {@link #locate(FileSystem, FileLocator)}.
+     * The probe is executed on the shared I/O executor of
+     * {@link LocationExecutors}.
+     *
+     * @param fileSystem the {@code FileSystem} to be used
+     * @param locator the object describing the file to be located
+     * @return a future for the URL of the referenced file; it completes with
+     *         <b>null</b> if the file could not be resolved
+     */
+    default CompletableFuture<URL> locateAsync(FileSystem fileSystem, FileLocator locator)
+    {
+        return locateAsync(fileSystem, locator, LocationExecutors.ioExecutor());
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #locate(FileSystem, FileLocator)}
+     * running on the given executor. Cancelling the returned future interrupts
+     * the probe. Implementations which can resolve files without blocking
+     * (or combine other strategies) may override this method.
+     *
+     * @param fileSystem the {@code FileSystem} to be used
+     * @param locator the object describing the file to be located
+     * @param executor the executor running blocking probes
+     * @return a future for the URL of the referenced file; it completes with
+     *         <b>null</b> if the file could not be resolved
+     */
+    default CompletableFuture<URL> locateAsync(FileSystem fileSystem, FileLocator locator,
+            Executor executor)
+    {
+        return LocationExecutors.supplyAsync(() -> locate(fileSystem, locator), executor);
+    }
 }
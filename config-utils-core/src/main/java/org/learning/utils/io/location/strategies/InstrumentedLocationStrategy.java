@@ -0,0 +1,187 @@
+package org.learning.utils.io.location.strategies;
+
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.learning.utils.io.location.FileLocator;
+
+/**
+ * <p>
+ * A {@code FileLocationStrategy} decorator which records how often the wrapped
+ * strategy resolves a file (hit), fails to resolve it (miss) or throws an
+ * exception (error), and how long each probe takes.
+ * </p>
+ * <p>
+ * Counters are {@link LongAdder}s, so recording is cheap even under heavy
+ * concurrent use. Latencies are collected in a histogram with power-of-two
+ * microsecond buckets. The current values can be obtained as an immutable
+ * {@link LocationStats} snapshot. Instances are usually created through
+ * {@link LocationMetrics}.
+ * </p>
+ */
+public class InstrumentedLocationStrategy implements FileLocationStrategy
+{
+    /** The name under which the statistics are reported. */
+    private final String name;
+
+    /** The wrapped strategy. */
+    private final FileLocationStrategy delegate;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** The latency histogram, see {@link LocationStats#bucketUpperBoundMicros(int)}. */
+    private final LongAdder[] latencyBuckets =
+            new LongAdder[LocationStats.BUCKET_COUNT];
+
+    /**
+     * Creates a new instance of {@code InstrumentedLocationStrategy}.
+     *
+     * @param name the name used in reports
+     * @param delegate the strategy to be wrapped
+     * @throws IllegalArgumentException if a parameter is <b>null</b>
+     */
+    public InstrumentedLocationStrategy(String name,
+            FileLocationStrategy delegate)
+    {
+        if (name == null || delegate == null)
+        {
+            throw new IllegalArgumentException(
+                    "Name and delegate strategy must not be null!");
+        }
+        this.name = name;
+        this.delegate = delegate;
+        for (int i = 0; i < latencyBuckets.length; i++)
+        {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the name of this strategy.
+     *
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the wrapped strategy.
+     *
+     * @return the wrapped strategy
+     */
+    public FileLocationStrategy getDelegate()
+    {
+        return delegate;
+    }
+
+    /**
+     * {@inheritDoc} This implementation delegates to the wrapped strategy and
+     * records the outcome.
+     */
+    @Override
+    public URL locate(FileSystem fileSystem, FileLocator locator)
+    {
+        long start = System.nanoTime();
+        URL url;
+        try
+        {
+            url = delegate.locate(fileSystem, locator);
+        }
+        catch (RuntimeException e)
+        {
+            record(null, e, start);
+            throw e;
+        }
+        record(url, null, start);
+        return url;
+    }
+
+    /**
+     * {@inheritDoc} This implementation delegates to the asynchronous method
+     * of the wrapped strategy and records the outcome on completion. Cancelled
+     * probes are not recorded.
+     */
+    @Override
+    public CompletableFuture<URL> locateAsync(FileSystem fileSystem,
+            FileLocator locator, Executor executor)
+    {
+        long start = System.nanoTime();
+        CompletableFuture<URL> future =
+                delegate.locateAsync(fileSystem, locator, executor);
+        future.whenComplete((url, ex) -> {
+            if (!future.isCancelled())
+            {
+                record(url, ex, start);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns a snapshot of the statistics collected so far.
+     *
+     * @return the statistics
+     */
+    public LocationStats snapshot()
+    {
+        long[] buckets = new long[latencyBuckets.length];
+        for (int i = 0; i < buckets.length; i++)
+        {
+            buckets[i] = latencyBuckets[i].sum();
+        }
+        return new LocationStats(name, hits.sum(), misses.sum(), errors.sum(),
+                totalNanos.sum(), buckets);
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public void reset()
+    {
+        hits.reset();
+        misses.reset();
+        errors.reset();
+        totalNanos.reset();
+        for (LongAdder bucket : latencyBuckets)
+        {
+            bucket.reset();
+        }
+    }
+
+    private void record(URL url, Throwable error, long start)
+    {
+        long nanos = System.nanoTime() - start;
+        if (error != null)
+        {
+            errors.increment();
+        }
+        else if (url != null)
+        {
+            hits.increment();
+        }
+        else
+        {
+            misses.increment();
+        }
+        totalNanos.add(nanos);
+        latencyBuckets[LocationStats.bucketIndex(
+                TimeUnit.NANOSECONDS.toMicros(nanos))].increment();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "InstrumentedLocationStrategy[" + name + "]";
+    }
+}
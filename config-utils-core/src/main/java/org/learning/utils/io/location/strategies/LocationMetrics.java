@@ -0,0 +1,98 @@
+package org.learning.utils.io.location.strategies;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * A registry of {@link InstrumentedLocationStrategy} objects.
+ * </p>
+ * <p>
+ * Strategies are instrumented through this class; afterwards their statistics
+ * can be queried together with {@link #snapshot()}. For a
+ * {@link CombinedLocationStrategy}, {@link #instrument(CombinedLocationStrategy)}
+ * wraps the combined strategy as well as each of its sub strategies, which
+ * shows both the overall cost of a lookup and which sub strategy resolves the
+ * files.
+ * </p>
+ */
+public class LocationMetrics
+{
+    /** The name used for the combined strategy itself. */
+    public static final String COMBINED_NAME = "combined";
+
+    /** The registered strategies in registration order. */
+    private final List<InstrumentedLocationStrategy> strategies =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * Wraps the given strategy and registers it under the given name.
+     *
+     * @param name the name used in reports
+     * @param strategy the strategy to be instrumented
+     * @return the instrumented strategy
+     */
+    public InstrumentedLocationStrategy instrument(String name,
+            FileLocationStrategy strategy)
+    {
+        InstrumentedLocationStrategy instrumented =
+                new InstrumentedLocationStrategy(name, strategy);
+        strategies.add(instrumented);
+        return instrumented;
+    }
+
+    /**
+     * Instruments a combined strategy. A new {@code CombinedLocationStrategy}
+     * is created whose sub strategies are instrumented; they are reported
+     * under their simple class names. The new combined strategy is
+     * instrumented, too, and reported as {@link #COMBINED_NAME}.
+     *
+     * @param combined the combined strategy
+     * @return the instrumented replacement for the combined strategy
+     */
+    public InstrumentedLocationStrategy instrument(
+            CombinedLocationStrategy combined)
+    {
+        Collection<FileLocationStrategy> subs = combined.getSubStrategies();
+        List<FileLocationStrategy> instrumentedSubs =
+                new ArrayList<>(subs.size());
+        for (FileLocationStrategy sub : subs)
+        {
+            instrumentedSubs.add(instrument(sub.getClass().getSimpleName(), sub));
+        }
+        return instrument(COMBINED_NAME,
+                new CombinedLocationStrategy(instrumentedSubs));
+    }
+
+    /**
+     * Returns the current statistics of all registered strategies in
+     * registration order, keyed by name. If multiple strategies share a name,
+     * only the last one is contained.
+     *
+     * @return a map with statistics
+     */
+    public Map<String, LocationStats> snapshot()
+    {
+        Map<String, LocationStats> result = new LinkedHashMap<>();
+        for (InstrumentedLocationStrategy strategy : strategies)
+        {
+            result.put(strategy.getName(), strategy.snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Resets the statistics of all registered strategies.
+     */
+    public void reset()
+    {
+        for (InstrumentedLocationStrategy strategy : strategies)
+        {
+            strategy.reset();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.learning.utils.io.location.strategies;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * An immutable snapshot of the statistics recorded by an
+ * {@link InstrumentedLocationStrategy}.
+ * </p>
+ * <p>
+ * Latencies are kept in a histogram of {@link #BUCKET_COUNT} buckets. Bucket
+ * {@code 0} counts probes faster than one microsecond, bucket {@code i} probes
+ * taking less than {@code 2^i} microseconds, and the last bucket all slower
+ * probes.
+ * </p>
+ */
+public final class LocationStats
+{
+    /** The number of latency buckets. */
+    public static final int BUCKET_COUNT = 32;
+
+    private final String name;
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long errorCount;
+
+    private final long totalNanos;
+
+    private final long[] latencyHistogram;
+
+    LocationStats(String name, long hitCount, long missCount, long errorCount,
+            long totalNanos, long[] latencyHistogram)
+    {
+        this.name = name;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.errorCount = errorCount;
+        this.totalNanos = totalNanos;
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    /**
+     * Returns the index of the bucket for the given latency.
+     *
+     * @param micros the latency in microseconds
+     * @return the bucket index
+     */
+    static int bucketIndex(long micros)
+    {
+        int index = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Returns the exclusive upper bound of the given bucket in microseconds.
+     * For the last bucket, result is {@link Long#MAX_VALUE}.
+     *
+     * @param bucket the bucket index
+     * @return the upper bound of the bucket
+     */
+    public static long bucketUpperBoundMicros(int bucket)
+    {
+        return (bucket >= BUCKET_COUNT - 1) ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    public long getErrorCount()
+    {
+        return errorCount;
+    }
+
+    /**
+     * Returns the number of recorded probes.
+     *
+     * @return the number of probes
+     */
+    public long getProbeCount()
+    {
+        return hitCount + missCount + errorCount;
+    }
+
+    /**
+     * Returns the ratio of hits to probes or 0 if nothing was recorded.
+     *
+     * @return the hit ratio
+     */
+    public double getHitRatio()
+    {
+        long probes = getProbeCount();
+        return (probes == 0) ? 0 : (double) hitCount / probes;
+    }
+
+    public long getTotalNanos()
+    {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the mean latency of a probe or 0 if nothing was recorded.
+     *
+     * @return the mean latency in nanoseconds
+     */
+    public long getMeanNanos()
+    {
+        long probes = getProbeCount();
+        return (probes == 0) ? 0 : totalNanos / probes;
+    }
+
+    /**
+     * Returns the latency histogram. The array has {@link #BUCKET_COUNT}
+     * elements with the number of probes per bucket.
+     *
+     * @return a copy of the histogram
+     */
+    public long[] getLatencyHistogram()
+    {
+        return latencyHistogram.clone();
+    }
+
+    /**
+     * Returns an upper bound of the given latency percentile, i.e. the upper
+     * bound of the bucket containing it.
+     *
+     * @param percentile the percentile (between 0 and 100)
+     * @return the upper bound in microseconds or 0 if nothing was recorded
+     */
+    public long getPercentileUpperBoundMicros(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+        {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 100: " + percentile);
+        }
+        long total = 0;
+        for (long count : latencyHistogram)
+        {
+            total += count;
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < latencyHistogram.length; i++)
+        {
+            seen += latencyHistogram[i];
+            if (seen >= rank && seen > 0)
+            {
+                return bucketUpperBoundMicros(i);
+            }
+        }
+        return bucketUpperBoundMicros(BUCKET_COUNT - 1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocationStats[name=" + name + ", hits=" + hitCount
+                + ", misses=" + missCount + ", errors=" + errorCount
+                + ", meanNanos=" + getMeanNanos() + ", histogram="
+                + Arrays.toString(latencyHistogram) + "]";
+    }
+}
@@ -0,0 +1,855 @@
+package org.learning.utils.properties;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with string keys which stores dotted keys such as
+ * {@code spring.datasource.url} as paths of segments rather than as separate strings.
+ * <p>
+ * The keys are split at dots and stored in a trie compressed at segment boundaries: every node
+ * holds the segments between two branches and refers to its parent, so a prefix shared by many
+ * keys (e.g. {@code spring.datasource}) is stored once, and a tail which belongs to a single key
+ * is stored in a single node. The segment strings are interned per map, so segments occurring
+ * in different places (e.g. {@code url} in {@code db1.datasource.url} and
+ * {@code db2.datasource.url}) are shared, too. A key therefore costs a small node instead of a
+ * {@code String} with its own character array and a hash map entry. Lookups walk the segments
+ * of the passed in key and compare them in place; they do not allocate and cost O(key length).
+ * Key strings are only created when the keys are iterated.
+ * <p>
+ * Keys with a common prefix form a subtree, so {@link #getKeys(String)} finds the keys below a
+ * prefix without scanning the other keys. Interned segments are kept until {@link #clear()} is
+ * called, even if the keys using them are removed.
+ * <p>
+ * This map does not support <b>null</b> keys; <b>null</b> values are allowed. Like
+ * {@code HashMap} it is not synchronized, and the iterators are fail-fast. Lookups terminate
+ * even if the map is modified concurrently, but may then return stale results.
+ *
+ * @param <V> the type of the values
+ */
+public class CompactKeyMap<V> extends AbstractMap<String, V> implements Cloneable {
+
+    /** The separator of the segments of a key. */
+    private static final char SEPARATOR = '.';
+
+    /** The marker for a node without a value. */
+    private static final Object NO_VALUE = new Object();
+
+    /** The initial size of the child table of a node. */
+    private static final int INITIAL_CHILDREN = 2;
+
+    /** The initial size of the segment table. */
+    private static final int INITIAL_SEGMENTS = 16;
+
+    /** The root node; it has no segment of its own. */
+    private final Node root = new Node(null, null);
+
+    /** The hash table with the interned segments. */
+    private String[] segments = new String[INITIAL_SEGMENTS];
+
+    /** The number of interned segments. */
+    private int segmentCount;
+
+    /** The number of keys. */
+    private int size;
+
+    /** The number of structural modifications, for detecting concurrent modifications. */
+    private int modCount;
+
+    /** The entry set view, created on demand. */
+    private Set<Map.Entry<String, V>> entrySet;
+
+    /**
+     * Creates an empty map.
+     */
+    public CompactKeyMap() {
+    }
+
+    /**
+     * Creates a map with the content of the given map.
+     *
+     * @param map the map to copy
+     */
+    public CompactKeyMap(Map<String, ? extends V> map) {
+        putAll(map);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node node = find(key);
+        return node != null && node.value != NO_VALUE;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node node = find(key);
+        return (node != null) ? node.getValue() : null;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Key must not be null");
+        }
+
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = segmentEnd(key, start);
+            Node child = node.child(key, start, end);
+            if (child == null) {
+                child = new Node(node, createLabel(key, start));
+                node.addChild(child);
+                node = child;
+                break;
+            }
+
+            int count = segmentCount(child.label);
+            int matched = 1;
+            while (matched < count && end < key.length()) {
+                int nextEnd = segmentEnd(key, end + 1);
+                if (!segmentEquals(segment(child.label, matched), key, end + 1, nextEnd)) {
+                    break;
+                }
+                end = nextEnd;
+                matched++;
+            }
+            if (matched < count) {
+                child = split(child, matched);
+            }
+
+            node = child;
+            if (end == key.length()) {
+                break;
+            }
+            start = end + 1;
+        }
+
+        V previous = node.getValue();
+        if (node.value == NO_VALUE) {
+            size++;
+            modCount++;
+        }
+        node.value = value;
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node node = find(key);
+        if (node == null || node.value == NO_VALUE) {
+            return null;
+        }
+
+        V previous = node.getValue();
+        node.value = NO_VALUE;
+        size--;
+        modCount++;
+        compress(node);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        root.children = null;
+        root.childCount = 0;
+        segments = new String[INITIAL_SEGMENTS];
+        segmentCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        Set<Map.Entry<String, V>> result = entrySet;
+        if (result == null) {
+            result = new EntrySet();
+            entrySet = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys which are equal to the given prefix or start with the prefix followed by
+     * a dot. The keys are found by walking to the node of the prefix, so the cost depends on the
+     * number of matching keys only. The order of the keys is not defined.
+     *
+     * @param prefix the prefix
+     * @return an iterator over the matching keys
+     */
+    public Iterator<String> getKeys(String prefix) {
+        Node node = find(prefix, true);
+        return new KeyIterator(node);
+    }
+
+    /**
+     * Returns a copy of this map. The values are not cloned.
+     *
+     * @return the copy
+     */
+    @Override
+    public CompactKeyMap<V> clone() {
+        return new CompactKeyMap<>(this);
+    }
+
+    /**
+     * Returns the node of the given key.
+     *
+     * @param key the key
+     * @return the node or <b>null</b> if there is none
+     */
+    private Node find(Object key) {
+        return find(key, false);
+    }
+
+    /**
+     * Returns the node of the given key. If the partial flag is set and the key ends within the
+     * label of a node, this node is returned, too; all keys of its subtree start with the given
+     * key followed by a dot.
+     *
+     * @param key     the key
+     * @param partial a flag whether a key ending within a label is accepted
+     * @return the node or <b>null</b> if there is none
+     */
+    private Node find(Object key, boolean partial) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        String k = (String) key;
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = segmentEnd(k, start);
+            node = node.child(k, start, end);
+            if (node == null) {
+                return null;
+            }
+
+            int count = segmentCount(node.label);
+            for (int i = 1; i < count; i++) {
+                if (end == k.length()) {
+                    // the key ends within the label
+                    return partial ? node : null;
+                }
+                int nextEnd = segmentEnd(k, end + 1);
+                if (!segmentEquals(segment(node.label, i), k, end + 1, nextEnd)) {
+                    return null;
+                }
+                end = nextEnd;
+            }
+
+            if (end == k.length()) {
+                return node;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Splits the label of the given node after the given number of segments. A new node with the
+     * first segments takes the place of the node, which becomes its only child.
+     *
+     * @param node  the node
+     * @param count the number of segments kept by the new node
+     * @return the new node
+     */
+    private static Node split(Node node, int count) {
+        String[] segs = segments(node.label);
+        Node parent = node.parent;
+        Node head = new Node(parent, label(segs, 0, count));
+        parent.replaceChild(node, head);
+        node.label = label(segs, count, segs.length);
+        node.parent = head;
+        head.addChild(node);
+        return head;
+    }
+
+    /**
+     * Restores the structure of the trie after the given node has lost its value: nodes without
+     * a value and without children are removed, and a node without a value and a single child is
+     * merged with the child.
+     *
+     * @param node the node which has lost its value
+     */
+    private void compress(Node node) {
+        Node current = node;
+        while (current != root && current.value == NO_VALUE) {
+            if (current.childCount == 0) {
+                current.parent.removeChild(current);
+                current = current.parent;
+            } else {
+                if (current.childCount == 1) {
+                    Node child = current.onlyChild();
+                    child.label = concat(current.label, child.label);
+                    child.parent = current.parent;
+                    current.parent.replaceChild(current, child);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Creates the label for the segments of a key starting at the given position.
+     *
+     * @param key   the key
+     * @param start the start of the first segment
+     * @return the label
+     */
+    private Object createLabel(String key, int start) {
+        int end = segmentEnd(key, start);
+        if (end == key.length()) {
+            return intern(key, start, end);
+        }
+
+        List<String> segs = new ArrayList<>();
+        int pos = start;
+        while (true) {
+            end = segmentEnd(key, pos);
+            segs.add(intern(key, pos, end));
+            if (end == key.length()) {
+                return segs.toArray(new String[0]);
+            }
+            pos = end + 1;
+        }
+    }
+
+    /**
+     * Returns the interned instance of a segment of a key.
+     *
+     * @param key   the key
+     * @param start the start of the segment
+     * @param end   the end of the segment
+     * @return the shared instance
+     */
+    private String intern(String key, int start, int end) {
+        int h = hash(key, start, end);
+        int mask = segments.length - 1;
+        int index = indexFor(h, segments.length);
+        String s;
+        while ((s = segments[index]) != null) {
+            if (s.hashCode() == h && segmentEquals(s, key, start, end)) {
+                return s;
+            }
+            index = (index + 1) & mask;
+        }
+
+        s = key.substring(start, end);
+        segments[index] = s;
+        if (++segmentCount * 2 > segments.length) {
+            String[] table = new String[segments.length * 2];
+            for (String seg : segments) {
+                if (seg != null) {
+                    int i = indexFor(seg.hashCode(), table.length);
+                    while (table[i] != null) {
+                        i = (i + 1) & (table.length - 1);
+                    }
+                    table[i] = seg;
+                }
+            }
+            segments = table;
+        }
+        return s;
+    }
+
+    /**
+     * Checks whether a segment is equal to a part of a key.
+     *
+     * @param segment the segment
+     * @param key     the key
+     * @param start   the start of the part
+     * @param end     the end of the part
+     * @return a flag whether the segment is equal
+     */
+    private static boolean segmentEquals(String segment, String key, int start, int end) {
+        int length = end - start;
+        return segment.length() == length && key.regionMatches(start, segment, 0, length);
+    }
+
+    /**
+     * Returns the number of segments of a label. A label is either a single segment or an array
+     * with multiple segments.
+     *
+     * @param label the label
+     * @return the number of segments
+     */
+    private static int segmentCount(Object label) {
+        return (label instanceof String) ? 1 : ((String[]) label).length;
+    }
+
+    /**
+     * Returns a segment of a label.
+     *
+     * @param label the label
+     * @param index the index of the segment
+     * @return the segment
+     */
+    private static String segment(Object label, int index) {
+        return (label instanceof String) ? (String) label : ((String[]) label)[index];
+    }
+
+    /**
+     * Returns the segments of a label as an array.
+     *
+     * @param label the label
+     * @return the segments
+     */
+    private static String[] segments(Object label) {
+        return (label instanceof String) ? new String[] {(String) label} : (String[]) label;
+    }
+
+    /**
+     * Creates a label for a range of segments.
+     *
+     * @param segs the segments
+     * @param from the index of the first segment
+     * @param to   the index after the last segment
+     * @return the label
+     */
+    private static Object label(String[] segs, int from, int to) {
+        return (to - from == 1) ? segs[from] : Arrays.copyOfRange(segs, from, to);
+    }
+
+    /**
+     * Concatenates two labels.
+     *
+     * @param first  the first label
+     * @param second the second label
+     * @return the combined label
+     */
+    private static Object concat(Object first, Object second) {
+        String[] a = segments(first);
+        String[] b = segments(second);
+        String[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Returns the end of the segment starting at the given position.
+     *
+     * @param key   the key
+     * @param start the start of the segment
+     * @return the position of the next separator or the length of the key
+     */
+    private static int segmentEnd(String key, int start) {
+        int end = key.indexOf(SEPARATOR, start);
+        return (end < 0) ? key.length() : end;
+    }
+
+    /**
+     * Computes the hash code of a part of a string; it is the same as the hash code of the
+     * corresponding substring.
+     *
+     * @param key   the string
+     * @param start the start of the part
+     * @param end   the end of the part
+     * @return the hash code
+     */
+    private static int hash(String key, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Returns the index of the child table to start probing at.
+     *
+     * @param hash   the hash code of the segment
+     * @param length the length of the table
+     * @return the index
+     */
+    private static int indexFor(int hash, int length) {
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    /**
+     * Creates the key of the given node from the segments of its path.
+     *
+     * @param node the node
+     * @return the key
+     */
+    private static String keyOf(Node node) {
+        int length = -1;
+        for (Node n = node; n.parent != null; n = n.parent) {
+            for (int i = segmentCount(n.label) - 1; i >= 0; i--) {
+                length += segment(n.label, i).length() + 1;
+            }
+        }
+
+        char[] chars = new char[length];
+        int pos = length;
+        for (Node n = node; n.parent != null; n = n.parent) {
+            for (int i = segmentCount(n.label) - 1; i >= 0; i--) {
+                String seg = segment(n.label, i);
+                pos -= seg.length();
+                seg.getChars(0, seg.length(), chars, pos);
+                if (pos > 0) {
+                    chars[--pos] = SEPARATOR;
+                }
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A node of the trie. The children are stored in an open addressing hash table with linear
+     * probing, keyed by the first segment of their labels. Removing a child replaces the table,
+     * so iterators are not affected by removals.
+     */
+    private static final class Node {
+
+        /** The parent node. */
+        Node parent;
+
+        /** The segments of this node: a single string or an array of strings. */
+        Object label;
+
+        /** The value or {@code NO_VALUE}. */
+        Object value = NO_VALUE;
+
+        /** The table with the child nodes or <b>null</b>. */
+        Node[] children;
+
+        /** The number of child nodes. */
+        int childCount;
+
+        Node(Node parent, Object label) {
+            this.parent = parent;
+            this.label = label;
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> V getValue() {
+            return (value != NO_VALUE) ? (V) value : null;
+        }
+
+        /**
+         * Returns the child whose label starts with the given segment of a key.
+         *
+         * @param key   the key
+         * @param start the start of the segment
+         * @param end   the end of the segment
+         * @return the child or <b>null</b>
+         */
+        Node child(String key, int start, int end) {
+            Node[] table = children;
+            if (table == null) {
+                return null;
+            }
+
+            int h = hash(key, start, end);
+            int mask = table.length - 1;
+            int index = indexFor(h, table.length);
+            for (int probe = 0; probe < table.length; probe++) {
+                Node child = table[index];
+                if (child == null) {
+                    return null;
+                }
+                String first = segment(child.label, 0);
+                if (first.hashCode() == h && segmentEquals(first, key, start, end)) {
+                    return child;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the single child of this node.
+         *
+         * @return the child
+         */
+        Node onlyChild() {
+            for (Node n : children) {
+                if (n != null) {
+                    return n;
+                }
+            }
+            throw new IllegalStateException("No child");
+        }
+
+        /**
+         * Adds a child. No child with the same first segment must be contained.
+         *
+         * @param child the child
+         */
+        void addChild(Node child) {
+            if (children == null) {
+                children = new Node[INITIAL_CHILDREN];
+            } else if ((childCount + 1) * 4 > children.length * 3) {
+                Node[] table = new Node[children.length * 2];
+                for (Node n : children) {
+                    if (n != null) {
+                        insert(table, n);
+                    }
+                }
+                children = table;
+            }
+            insert(children, child);
+            childCount++;
+        }
+
+        /**
+         * Replaces a child by a node whose label has the same first segment.
+         *
+         * @param child       the child
+         * @param replacement the new child
+         */
+        void replaceChild(Node child, Node replacement) {
+            Node[] table = children;
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] == child) {
+                    table[i] = replacement;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Removes a child by creating a new table with the remaining children.
+         *
+         * @param child the child
+         */
+        void removeChild(Node child) {
+            childCount--;
+            if (childCount == 0) {
+                children = null;
+                return;
+            }
+
+            int length = children.length;
+            while (length > INITIAL_CHILDREN && childCount * 4 <= length) {
+                length /= 2;
+            }
+            Node[] table = new Node[length];
+            for (Node n : children) {
+                if (n != null && n != child) {
+                    insert(table, n);
+                }
+            }
+            children = table;
+        }
+
+        private static void insert(Node[] table, Node node) {
+            int mask = table.length - 1;
+            int index = indexFor(segment(node.label, 0).hashCode(), table.length);
+            while (table[index] != null) {
+                index = (index + 1) & mask;
+            }
+            table[index] = node;
+        }
+    }
+
+    /**
+     * An iterator over the nodes with values of a subtree, in depth-first order.
+     */
+    private abstract class NodeIterator<T> implements Iterator<T> {
+
+        /** The child tables being visited with the next index to visit. */
+        private final Deque<Object[]> stack = new ArrayDeque<>();
+
+        /** The expected number of modifications. */
+        private int expectedModCount = modCount;
+
+        /** The next node to return or <b>null</b>. */
+        private Node next;
+
+        /** The node returned last or <b>null</b>. */
+        private Node current;
+
+        /**
+         * Creates an iterator over the subtree of the given node, including the node itself.
+         *
+         * @param start the root of the subtree (may be <b>null</b>)
+         */
+        NodeIterator(Node start) {
+            if (start != null) {
+                if (start.children != null) {
+                    stack.push(new Object[] {start.children, new int[1]});
+                }
+                next = (start.value != NO_VALUE) ? start : advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * Returns the next node.
+         *
+         * @return the node
+         */
+        Node nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = advance();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            CompactKeyMap.this.remove(keyOf(current));
+            expectedModCount = modCount;
+            current = null;
+        }
+
+        private Node advance() {
+            while (!stack.isEmpty()) {
+                Object[] frame = stack.peek();
+                Node[] table = (Node[]) frame[0];
+                int[] pos = (int[]) frame[1];
+                if (pos[0] >= table.length) {
+                    stack.pop();
+                    continue;
+                }
+
+                Node node = table[pos[0]++];
+                if (node != null) {
+                    if (node.children != null) {
+                        stack.push(new Object[] {node.children, new int[1]});
+                    }
+                    if (node.value != NO_VALUE) {
+                        return node;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An iterator over the keys of a subtree.
+     */
+    private final class KeyIterator extends NodeIterator<String> {
+
+        KeyIterator(Node start) {
+            super(start);
+        }
+
+        @Override
+        public String next() {
+            return keyOf(nextNode());
+        }
+    }
+
+    /**
+     * The entry set view of this map.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, V>> {
+
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator() {
+            return new NodeIterator<Map.Entry<String, V>>(root) {
+                @Override
+                public Map.Entry<String, V> next() {
+                    return new NodeEntry(nextNode());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            CompactKeyMap.this.clear();
+        }
+    }
+
+    /**
+     * An entry referring to a node. The key is created on demand.
+     */
+    private final class NodeEntry implements Map.Entry<String, V> {
+
+        /** The node. */
+        private final Node node;
+
+        /** The key, created on demand. */
+        private String key;
+
+        NodeEntry(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public String getKey() {
+            if (key == null) {
+                key = keyOf(node);
+            }
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return node.getValue();
+        }
+
+        @Override
+        public V setValue(V value) {
+            V previous = node.getValue();
+            node.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) obj;
+            V value = getValue();
+            return getKey().equals(e.getKey())
+                && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            V value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
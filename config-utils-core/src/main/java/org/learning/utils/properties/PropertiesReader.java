@@ -14,6 +14,10 @@ import org.apache.logging.log4j.Logger;
 
 /**
  * Created by oksana_cherniavskaia on 18.10.2018.
+ * <p>
+ * The reader keeps the property maps returned by the sources and looks up each key in them in order, so later changes of the
+ * maps are visible. If several sources contain a key, the value of the first source wins. Sources holding many dotted keys can
+ * return a {@link CompactKeyMap} from {@link IPropertiesSource#getProperties()} to reduce the memory footprint.
  */
 public class PropertiesReader {
 
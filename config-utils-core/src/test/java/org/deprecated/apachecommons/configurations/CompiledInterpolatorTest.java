@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.configuration2.ConfigurationLookup;
+import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@code CompiledInterpolator}. The results are compared with
+ * the ones of a plain {@code ConfigurationInterpolator}.
+ */
+public class CompiledInterpolatorTest
+{
+    /** The configuration to be interpolated. */
+    private MapConfiguration config;
+
+    /** The interpolator producing the expected results. */
+    private ConfigurationInterpolator expected;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("list", Arrays.asList("a", "b"));
+        map.put("single", "x");
+        map.put("embedded", "${list}!");
+        map.put("whole", "${list}");
+        map.put("nested", "<${embedded}>");
+        config = new MapConfiguration(map);
+
+        expected = new ConfigurationInterpolator();
+        expected.addDefaultLookup(new ConfigurationLookup(config));
+    }
+
+    /**
+     * Tests that an embedded variable with multiple values is replaced by the
+     * string form of the whole collection.
+     */
+    @Test
+    public void testEmbeddedListVariable()
+    {
+        assertEquals(config.getString("embedded"),
+                expected.interpolate(config.getProperty("embedded")));
+        assertEquals(config.getList("embedded"),
+                Arrays.asList(expected.interpolate(config.getProperty("embedded"))));
+        assertEquals(config.getString("nested"),
+                expected.interpolate(config.getProperty("nested")));
+    }
+
+    /**
+     * Tests that a string consisting of a single variable with multiple
+     * values resolves to the collection.
+     */
+    @Test
+    public void testSingleListVariable()
+    {
+        assertEquals(config.getList("whole"), Arrays.asList("a", "b"));
+        assertEquals(config.interpolate(config.getProperty("whole")),
+                expected.interpolate(config.getProperty("whole")));
+    }
+
+    /**
+     * Tests that a cached result is dropped when a property it depends on is
+     * changed.
+     */
+    @Test
+    public void testCachedResultInvalidatedOnUpdate()
+    {
+        assertEquals(config.getString("nested"), "<[a, b]!>");
+        config.setProperty("list", "c");
+        assertEquals(config.getString("nested"), "<c!>");
+        assertEquals(config.getString("nested"),
+                expected.interpolate(config.getProperty("nested")));
+    }
+}
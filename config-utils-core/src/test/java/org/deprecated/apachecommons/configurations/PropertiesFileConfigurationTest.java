@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deprecated.apachecommons.configurations;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.configuration2.sync.LockMode;
+import org.apache.commons.configuration2.sync.ReadWriteSynchronizer;
+import org.deprecated.apachecommons.io.temp.FileHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@code PropertiesFileConfiguration}.
+ */
+public class PropertiesFileConfigurationTest
+{
+    /** The timeout for waiting on other threads in seconds. */
+    private static final long TIMEOUT = 10;
+
+    /** The configuration to be tested. */
+    private PropertiesFileConfiguration config;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        config = new PropertiesFileConfiguration();
+        config.setSynchronizer(new ReadWriteSynchronizer());
+        config.addProperty("key", "old");
+        config.addProperty("other", "x");
+    }
+
+    /**
+     * Tests that a slow load does not block readers: the data is read while
+     * another thread holds the read lock, and concurrent readers still get
+     * the old content. The content is only swapped after the read lock has
+     * been released.
+     */
+    @Test
+    public void testReadersNotBlockedDuringLoad() throws Exception
+    {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        final InputStream in = new SlowInputStream("key = new\n", reading,
+                proceed);
+        final FileHandler handler = new FileHandler(config);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread loader = new Thread(() -> {
+            try
+            {
+                handler.load(in);
+            }
+            catch (Throwable t)
+            {
+                error.set(t);
+            }
+        });
+
+        config.lock(LockMode.READ);
+        try
+        {
+            loader.start();
+            assertTrue(reading.await(TIMEOUT, TimeUnit.SECONDS),
+                    "Load blocked by the read lock");
+
+            FutureTask<String> read =
+                    new FutureTask<>(() -> config.getString("key"));
+            new Thread(read).start();
+            assertEquals(read.get(TIMEOUT, TimeUnit.SECONDS), "old");
+
+            proceed.countDown();
+            loader.join(200);
+            assertTrue(loader.isAlive(),
+                    "Content swapped while the read lock was held");
+            assertEquals(config.getString("key"), "old");
+        }
+        finally
+        {
+            proceed.countDown();
+            config.unlock(LockMode.READ);
+        }
+
+        loader.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+        assertFalse(loader.isAlive(), "Load not finished");
+        assertNull(error.get());
+        assertEquals(config.getString("key"), "new");
+        assertFalse(config.containsKey("other"));
+    }
+
+    /**
+     * An input stream which blocks on first access until it is released.
+     */
+    private static class SlowInputStream extends InputStream
+    {
+        /** The stream with the data. */
+        private final InputStream data;
+
+        /** The latch signaling that reading has started. */
+        private final CountDownLatch reading;
+
+        /** The latch to be released before data is returned. */
+        private final CountDownLatch proceed;
+
+        SlowInputStream(String content, CountDownLatch reading,
+                CountDownLatch proceed)
+        {
+            data = new ByteArrayInputStream(
+                    content.getBytes(StandardCharsets.ISO_8859_1));
+            this.reading = reading;
+            this.proceed = proceed;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            pause();
+            return data.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            pause();
+            return data.read(b, off, len);
+        }
+
+        private void pause() throws IOException
+        {
+            reading.countDown();
+            try
+            {
+                proceed.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.location;
+
+import static org.testng.Assert.assertEquals;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.deprecated.apachecommons.io.VerifiableOutputStream;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for saving to HTTP URLs with {@code DefaultFileSystem}.
+ */
+public class DefaultFileSystemHttpTest {
+
+    /** The content to be saved. */
+    private static final String CONTENT = "key1 = value1\nkey2 = value2\nkey3 = value3\n";
+
+    /** The test server. */
+    private HttpServer server;
+
+    /** The URL of the configuration on the test server. */
+    private URL url;
+
+    /** The status sent by the test server. */
+    private volatile int status;
+
+    /** The Transfer-Encoding headers of the received requests. */
+    private final List<String> transferEncodings = new CopyOnWriteArrayList<>();
+
+    /** The bodies of the received requests. */
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+    /** The client ports of the received requests. */
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        status = 200;
+        transferEncodings.clear();
+        bodies.clear();
+        clientPorts.clear();
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        server = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+        server.createContext("/config", this::handle);
+        server.start();
+        url = new URL("http", loopback.getHostAddress(), server.getAddress().getPort(), "/config");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Tests that the data is sent with chunked transfer encoding if a chunk
+     * size is set.
+     */
+    @Test
+    public void testSaveChunked() throws Exception {
+        DefaultFileSystem fs = new DefaultFileSystem();
+        fs.setHttpChunkSize(16);
+
+        save(fs);
+        assertEquals(transferEncodings, Collections.singletonList("chunked"));
+        assertEquals(bodies, Collections.singletonList(CONTENT));
+    }
+
+    /**
+     * Tests that an error reported by the server is thrown by verify().
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testVerifyServerError() throws Exception {
+        status = 500;
+        OutputStream out = new DefaultFileSystem().getOutputStream(url);
+        out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        ((VerifiableOutputStream) out).verify();
+    }
+
+    /**
+     * Tests that subsequent saves to the same server reuse the connection.
+     */
+    @Test
+    public void testSavesReuseConnection() throws Exception {
+        DefaultFileSystem fs = new DefaultFileSystem();
+
+        save(fs);
+        save(fs);
+        assertEquals(clientPorts.size(), 2);
+        assertEquals(clientPorts.get(1), clientPorts.get(0));
+    }
+
+    private void save(DefaultFileSystem fs) throws IOException {
+        try (OutputStream out = fs.getOutputStream(url)) {
+            out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        transferEncodings.add(String.valueOf(
+            exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                body.write(buffer, 0, count);
+            }
+            bodies.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deprecated.apachecommons.io.location;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.stream.Stream;
+import org.learning.core.config.patterns.factory.factories.ConfigurationException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@code NioFileSystem}.
+ */
+public class NioFileSystemTest {
+
+    /** The directory for the test files. */
+    private Path directory;
+
+    /** A zip file system in the test directory. */
+    private java.nio.file.FileSystem zipFileSystem;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("nio-fs-test");
+        URI zipUri = URI.create("jar:" + directory.resolve("config.zip").toUri());
+        zipFileSystem = FileSystems.newFileSystem(zipUri,
+            Collections.singletonMap("create", "true"));
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        zipFileSystem.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Collections.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Tests that a configuration can be saved into and loaded from a zip file
+     * system, without a file on the default file system.
+     */
+    @Test
+    public void testRoundTripInZipFileSystem() throws Exception {
+        NioFileSystem fs = new NioFileSystem();
+        URL url = zipFileSystem.getPath("/conf/app.properties").toUri().toURL();
+
+        write(fs, url, "key = value1");
+        assertEquals(read(fs, url), "key = value1");
+        write(fs, url, "key = value2");
+        assertEquals(read(fs, url), "key = value2");
+
+        String basePath = fs.getBasePath(url.toExternalForm());
+        assertEquals(fs.locateFromURL(basePath, "app.properties").toExternalForm(),
+            url.toExternalForm());
+        assertNull(fs.locateFromURL(basePath, "missing.properties"));
+    }
+
+    /**
+     * Tests that a directory in a zip file system cannot be loaded.
+     */
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testLoadDirectoryInZipFileSystem() throws Exception {
+        Files.createDirectories(zipFileSystem.getPath("/conf"));
+        new NioFileSystem().getInputStream(zipFileSystem.getPath("/conf").toUri().toURL());
+    }
+
+    /**
+     * Tests that a file saved by a {@code NioFileSystem} is not served from
+     * the content cache of a {@code DefaultFileSystem}, even if its size and
+     * modification time are unchanged.
+     */
+    @Test
+    public void testSaveInvalidatesSharedContentCache() throws Exception {
+        Path file = directory.resolve("cached.properties");
+        URL url = file.toFile().toURI().toURL();
+        NioFileSystem nioFs = new NioFileSystem();
+        DefaultFileSystem defaultFs = new DefaultFileSystem();
+
+        write(nioFs, url, "key = value1");
+        FileTime modified = Files.getLastModifiedTime(file);
+        assertEquals(read(defaultFs, url), "key = value1");
+
+        write(nioFs, url, "key = value2");
+        Files.setLastModifiedTime(file, modified);
+        assertEquals(read(defaultFs, url), "key = value2");
+    }
+
+    /**
+     * Tests that a memory mapped file can still be read after it has been
+     * replaced by an atomic save.
+     */
+    @Test
+    public void testMappedReadWithAtomicSave() throws Exception {
+        URL url = directory.resolve("mapped.properties").toFile().toURI().toURL();
+        NioFileSystem fs = new NioFileSystem();
+        fs.setAtomicSave(true);
+        fs.setMemoryMapThreshold(1);
+        String content1 = largeContent("value1");
+        String content2 = largeContent("value2");
+
+        write(fs, url, content1);
+        try (InputStream in = fs.getInputStream(url)) {
+            write(fs, url, content2);
+            assertEquals(read(in), content1);
+        }
+        assertEquals(read(fs, url), content2);
+    }
+
+    /**
+     * Tests that files are not memory mapped if saves are not atomic, so that
+     * a file which is truncated by a save while it is read does not crash the
+     * reader.
+     */
+    @Test
+    public void testNoMappedReadWithNonAtomicSave() throws Exception {
+        URL url = directory.resolve("truncated.properties").toFile().toURI().toURL();
+        NioFileSystem fs = new NioFileSystem();
+        fs.setMemoryMapThreshold(1);
+
+        write(fs, url, largeContent("value1"));
+        try (InputStream in = fs.getInputStream(url)) {
+            write(fs, url, "");
+            assertEquals(read(in), "");
+        }
+    }
+
+    /**
+     * Returns properties spanning several memory pages.
+     */
+    private static String largeContent(String value) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; buf.length() < 3 * 4096; i++) {
+            buf.append("key").append(i).append(" = ").append(value).append('\n');
+        }
+        return buf.toString();
+    }
+
+    private static void write(FileSystem fs, URL url, String content) throws IOException {
+        try (OutputStream out = fs.getOutputStream(url)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String read(FileSystem fs, URL url) throws IOException {
+        try (InputStream in = fs.getInputStream(url)) {
+            return read(in);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, count);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
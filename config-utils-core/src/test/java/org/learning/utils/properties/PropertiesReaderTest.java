@@ -0,0 +1,62 @@
+package org.learning.utils.properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@code PropertiesReader}.
+ */
+public class PropertiesReaderTest {
+
+    /**
+     * Tests that the value of the first source containing a key wins.
+     */
+    @Test
+    public void testFirstSourceWins() {
+        Map<String, Object> first = new HashMap<>();
+        first.put("app.name", "first");
+        Map<String, Object> second = new CompactKeyMap<>();
+        second.put("app.name", "second");
+        second.put("app.port", 8080);
+
+        PropertiesReader reader = new PropertiesReader(Arrays.asList(source(first), source(second)));
+        assertEquals(reader.get("app.name").orElse(null), "first");
+        assertEquals(reader.getInt("app.port", 0), 8080);
+        assertFalse(reader.get("app.missing").isPresent());
+    }
+
+    /**
+     * Tests that changes of the property maps of the sources are visible.
+     */
+    @Test
+    public void testChangesOfSourcesAreVisible() {
+        Map<String, Object> first = new HashMap<>();
+        Map<String, Object> second = new HashMap<>();
+        second.put("app.name", "second");
+        PropertiesReader reader = new PropertiesReader(Arrays.asList(source(first), source(second)));
+
+        first.put("app.name", "first");
+        second.put("app.port", "8080");
+        assertEquals(reader.get("app.name").orElse(null), "first");
+        assertEquals(reader.get("app.port").orElse(null), "8080");
+    }
+
+    private static IPropertiesSource source(Map<String, Object> properties) {
+        return new IPropertiesSource() {
+            @Override
+            public Map<String, Object> getProperties() {
+                return properties;
+            }
+
+            @Override
+            public int getPriority() {
+                return DEFAULT_PRIORITY;
+            }
+        };
+    }
+}